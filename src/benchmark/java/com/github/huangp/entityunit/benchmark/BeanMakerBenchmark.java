@@ -0,0 +1,69 @@
+package com.github.huangp.entityunit.benchmark;
+
+import com.github.huangp.entityunit.entity.MakeContext;
+import com.github.huangp.entityunit.holder.BeanValueHolder;
+import com.github.huangp.entityunit.maker.BeanMaker;
+import com.github.huangp.entityunit.maker.PreferredValueMakersRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zanata.model.HPerson;
+import org.zanata.model.HProject;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BeanMaker.value() for a plain bean and for entities.
+ *
+ * @author Patrick Huang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BeanMakerBenchmark {
+    private MakeContext context;
+
+    @Setup
+    public void setUp() {
+        context = new MakeContext(new BeanValueHolder(), new PreferredValueMakersRegistry());
+    }
+
+    @Benchmark
+    public PlainBean plainBean() {
+        return new BeanMaker<PlainBean>(PlainBean.class, context).value();
+    }
+
+    @Benchmark
+    public HPerson person() {
+        return new BeanMaker<HPerson>(HPerson.class, context).value();
+    }
+
+    @Benchmark
+    public HProject project() {
+        return new BeanMaker<HProject>(HProject.class, context).value();
+    }
+
+    @Getter
+    @Setter
+    public static class PlainBean {
+        private String name;
+        private String description;
+        private int count;
+        private Long total;
+        private Date created;
+        private boolean active;
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.huangp.entityunit.benchmark;
+
+import com.github.huangp.entityunit.entity.EntityClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zanata.model.HTextFlowTarget;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityClass.from and resolving depending entity types.
+ * <p/>
+ * Cold benchmarks run once per fresh JVM so the metadata cache is always empty.
+ *
+ * @author Patrick Huang
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntityClassBenchmark {
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public Iterable<EntityClass> warm() {
+        return EntityClass.from(HTextFlowTarget.class).getDependingEntityTypes();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public Iterable<EntityClass> cold() {
+        return EntityClass.from(HTextFlowTarget.class).getDependingEntityTypes();
+    }
+}
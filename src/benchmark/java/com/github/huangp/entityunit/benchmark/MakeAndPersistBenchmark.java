@@ -0,0 +1,80 @@
+package com.github.huangp.entityunit.benchmark;
+
+import com.github.huangp.entityunit.entity.EntityMaker;
+import com.github.huangp.entityunit.entity.EntityMakerBuilder;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zanata.model.HTextFlowTarget;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityMaker.makeAndPersist against in-memory H2.
+ * <p/>
+ * The entity manager is cleared after each invocation so the persistence context doesn't grow. Each invocation is a
+ * database round trip whose time varies a lot between iterations (JIT of the JPA provider, GC of the session), so it
+ * takes more iterations and forks than the in-memory benchmarks to get an error smaller than the score.
+ *
+ * @author Patrick Huang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class MakeAndPersistBenchmark {
+    private EntityManagerFactory emFactory;
+    private EntityManager entityManager;
+    private EntityMaker maker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emFactory = Persistence.createEntityManagerFactory("zanataTestDatasourcePU",
+                ImmutableMap.of("hibernate.connection.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1"));
+        entityManager = emFactory.createEntityManager();
+    }
+
+    @Setup(Level.Iteration)
+    public void newMaker() {
+        maker = EntityMakerBuilder.builder().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManager.close();
+        emFactory.close();
+    }
+
+    @Benchmark
+    public HTextFlowTarget textFlowTarget() {
+        entityManager.getTransaction().begin();
+        HTextFlowTarget target = maker.makeAndPersist(entityManager, HTextFlowTarget.class);
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        return target;
+    }
+
+    @Benchmark
+    public Iterable<HTextFlowTarget> hundredTextFlowTargets() {
+        entityManager.getTransaction().begin();
+        Iterable<HTextFlowTarget> targets = maker.makeAndPersistMany(entityManager, HTextFlowTarget.class, 100);
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        return targets;
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.huangp.entityunit.benchmark;
+
+import com.github.huangp.entityunit.maker.FixedValueMaker;
+import com.github.huangp.entityunit.maker.Maker;
+import com.github.huangp.entityunit.maker.PreferredValueMakersRegistry;
+import com.github.huangp.entityunit.util.Settable;
+import com.github.huangp.entityunit.util.SettableProperty;
+import com.google.common.base.Optional;
+import org.hamcrest.Matchers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zanata.model.HPerson;
+import org.zanata.model.HProject;
+
+import java.beans.PropertyDescriptor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PreferredValueMakersRegistry.getMaker with many registered makers.
+ * <p/>
+ * Plain benchmarks look up a settable that was looked up before (what BeanMaker does for every made bean after the
+ * first). Unresolved benchmarks invalidate resolved makers first by merging an empty registry, so they measure the
+ * actual matching. Compare them against invalidateOnly.
+ *
+ * @author Patrick Huang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PreferredValueMakersRegistryBenchmark {
+    private static final PreferredValueMakersRegistry EMPTY = new PreferredValueMakersRegistry();
+
+    @Param({ "10", "100" })
+    private int numOfMakers;
+
+    private PreferredValueMakersRegistry registry;
+    private Settable exactName;
+    private Settable customMatcher;
+    private Settable noMatch;
+
+    @Setup
+    public void setUp() throws Exception {
+        registry = new PreferredValueMakersRegistry();
+        Maker<String> maker = FixedValueMaker.fix("preferred");
+        for (int i = 0; i < numOfMakers; i++) {
+            registry.addFieldOrPropertyMaker(HProject.class, "field" + i, maker);
+            registry.add(Matchers.endsWith("custom" + i), maker);
+        }
+        registry.addFieldOrPropertyMaker(HPerson.class, "name", maker);
+        registry.add(Matchers.containsString("HProject - slug"), maker);
+
+        exactName = SettableProperty.from(HPerson.class, new PropertyDescriptor("name", HPerson.class));
+        customMatcher = SettableProperty.from(HProject.class, new PropertyDescriptor("slug", HProject.class));
+        noMatch = SettableProperty.from(HPerson.class, new PropertyDescriptor("email", HPerson.class));
+    }
+
+    @Benchmark
+    public Optional<Maker<?>> exactName() {
+        return registry.getMaker(exactName);
+    }
+
+    @Benchmark
+    public Optional<Maker<?>> customMatcher() {
+        return registry.getMaker(customMatcher);
+    }
+
+    @Benchmark
+    public Optional<Maker<?>> noMatch() {
+        return registry.getMaker(noMatch);
+    }
+
+    @Benchmark
+    public Optional<Maker<?>> exactNameUnresolved() {
+        return registry.merge(EMPTY).getMaker(exactName);
+    }
+
+    @Benchmark
+    public Optional<Maker<?>> customMatcherUnresolved() {
+        return registry.merge(EMPTY).getMaker(customMatcher);
+    }
+
+    @Benchmark
+    public Optional<Maker<?>> noMatchUnresolved() {
+        return registry.merge(EMPTY).getMaker(noMatch);
+    }
+
+    @Benchmark
+    public PreferredValueMakersRegistry invalidateOnly() {
+        return registry.merge(EMPTY);
+    }
+}
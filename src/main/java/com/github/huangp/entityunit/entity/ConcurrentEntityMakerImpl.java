@@ -0,0 +1,36 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.holder.ConcurrentBeanValueHolder;
+import com.google.common.base.Optional;
+
+/**
+ * EntityMaker that can be shared by multiple threads.
+ * <p/>
+ * Each thread works on its own session view of ConcurrentBeanValueHolder bound to the EntityManager it passes in
+ * (or the lazy iterator it iterates).
+ * Shared reference data is reused but never altered.
+ *
+ * @author Patrick Huang
+ * @see EntityMakerBuilder#concurrent()
+ * @see ConcurrentBeanValueHolder
+ */
+class ConcurrentEntityMakerImpl extends EntityMakerImpl {
+    private final ConcurrentBeanValueHolder valueHolder;
+
+    ConcurrentEntityMakerImpl(EntityClassScanner scanner, MakeContext context, int batchSize, FlushPolicy flushPolicy,
+                              FanOut fanOut, ConcurrentBeanValueHolder valueHolder) {
+        super(scanner, context, batchSize, JpaEntityPersister.PERSISTER, flushPolicy, fanOut, FixedIds.NONE);
+        this.valueHolder = valueHolder;
+    }
+
+    @Override
+    void bindSession(Object owner) {
+        valueHolder.bindTo(owner);
+    }
+
+    @Override
+    Optional<?> tryGetOneToManyOwner(Class<?> type) {
+        // shared reference data is read only
+        return valueHolder.tryGetFromSession(type);
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.huangp.entityunit.entity;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Order of deleting a set of entity classes.
+ * <p/>
+ * Entity classes are sorted topologically so that referencing entities come before referenced entities.
+ * Many to many and element collection tables of all entity classes are listed separately since they have to be
+ * deleted before any entity.
+ *
+ * @author Patrick Huang
+ * @see EntityCleaner#deleteAll(javax.persistence.EntityManager, Class[])
+ */
+@Slf4j
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+class DeletePlan {
+    private static final Cache<Set<Class>, DeletePlan> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(100)
+            .build();
+
+    private final List<String> associationTables;
+    private final List<Class> entityTypes;
+
+    static DeletePlan of(Class... entityClasses) {
+        final Set<Class> entityTypes = ImmutableSet.copyOf(entityClasses);
+        try {
+            return CACHE.get(entityTypes, new Callable<DeletePlan>() {
+                @Override
+                public DeletePlan call() throws Exception {
+                    return createPlan(entityTypes);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static DeletePlan createPlan(Set<Class> entityTypes) {
+        ImmutableList.Builder<String> associationTables = ImmutableList.builder();
+        // referenced type -> referencing types
+        SetMultimap<Class, Class> referencedBy = LinkedHashMultimap.create();
+        for (Class entityType : entityTypes) {
+            EntityClass entityClass = EntityClass.from(entityType, ScanOption.IncludeOneToOne);
+            associationTables.addAll(EntityCleaner.getAssociationTables(entityClass));
+
+            for (EntityClass depending : entityClass.getDependingEntityTypes()) {
+                for (Class candidate : entityTypes) {
+                    if (candidate != entityType && depending.getType().isAssignableFrom(candidate)) {
+                        referencedBy.put(candidate, entityType);
+                    }
+                }
+            }
+        }
+        List<Class> sorted = sort(entityTypes, referencedBy);
+        log.debug("delete order: {}", sorted);
+        return new DeletePlan(associationTables.build(), sorted);
+    }
+
+    /**
+     * Kahn's algorithm. An entity type is ready once all entity types that have to come before it are sorted.
+     * Ties are resolved by the given order.
+     *
+     * @param entityTypes
+     *         entity types to sort
+     * @param comingBefore
+     *         entity type -> entity types that have to come before it (i.e. referencing types for deleting)
+     * @return sorted entity types
+     * @throws IllegalStateException
+     *         if entity types reference each other in a cycle
+     */
+    static List<Class> sort(Set<Class> entityTypes, SetMultimap<Class, Class> comingBefore) {
+        Map<Class, Integer> remainingReferences = Maps.newLinkedHashMap();
+        for (Class entityType : entityTypes) {
+            remainingReferences.put(entityType, comingBefore.get(entityType).size());
+        }
+        SetMultimap<Class, Class> references = LinkedHashMultimap.create();
+        for (Map.Entry<Class, Class> entry : comingBefore.entries()) {
+            references.put(entry.getValue(), entry.getKey());
+        }
+
+        Deque<Class> ready = Lists.newLinkedList();
+        for (Map.Entry<Class, Integer> entry : remainingReferences.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
+            }
+        }
+        List<Class> sorted = Lists.newArrayListWithCapacity(entityTypes.size());
+        while (!ready.isEmpty()) {
+            Class entityType = ready.poll();
+            sorted.add(entityType);
+            for (Class referenced : references.get(entityType)) {
+                int remaining = remainingReferences.get(referenced) - 1;
+                remainingReferences.put(referenced, remaining);
+                if (remaining == 0) {
+                    ready.add(referenced);
+                }
+            }
+        }
+        if (sorted.size() < entityTypes.size()) {
+            Set<Class> inCycle = Sets.difference(entityTypes, ImmutableSet.copyOf(sorted));
+            throw new IllegalStateException("entity classes reference each other in a cycle: " + inCycle);
+        }
+        return ImmutableList.copyOf(sorted);
+    }
+}
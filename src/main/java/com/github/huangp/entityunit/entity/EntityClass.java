@@ -10,15 +10,17 @@ import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
@@ -49,7 +51,8 @@ import static com.google.common.collect.Lists.newArrayList;
  * <p/>
  * It scans the class hierarchy and figure out what elements are of interest when making an entity bean.
  * <p/>
- * It supports both access type: field and property.
+ * It supports both access type: field and property. Access type of the class is resolved once. Attributes annotated
+ * with Access override it (i.e. a getter annotated with Access(PROPERTY) in a field access class).
  * <p/>
  * Example:
  * <pre>
@@ -76,6 +79,7 @@ import static com.google.common.collect.Lists.newArrayList;
  * }
  * </code>
  * // The resulting object is cached so calling it again with same arguments it won't do the reflection scan again.
+ * // See EntityMetadata for pre-warming the cache.
  * EntityClass entityClass = EntityClass.from(LineItem.class, ScanOption.IncludeOneToOne);
  * // entityClass.getDependingEntityTypes() will return Category and Person (since we include optional one to one mapping)
  * // entityClass.getElements() will return all elements including id, name, owner, category
@@ -90,7 +94,7 @@ import static com.google.common.collect.Lists.newArrayList;
 @EqualsAndHashCode(of = {"type", "scanOption"})
 public class EntityClass {
     private static final Cache<CacheKey, EntityClass> CACHE = CacheBuilder.newBuilder()
-            .maximumSize(100)
+            .recordStats()
             .build();
 
     private Predicate<AnnotatedElement> oneToOnePredicate;
@@ -99,18 +103,26 @@ public class EntityClass {
     private final ScanOption scanOption;
     @Getter
     private final Iterable<Settable> elements;
+    /**
+     * Default access type of this class.
+     */
+    @Getter
+    private final AccessType accessType;
 
+    // whether this class is referenced by required OneToOne (each referencing entity needs its own instance)
     @Getter
-    @Setter
-    private boolean requireNewInstance;
+    private final boolean requireNewInstance;
 
+    private transient EntityClass requireNewInstanceView;
     private transient Iterable<EntityClass> requiredEntityTypes;
     private transient Iterable<Settable> associationGetters;
     private transient Iterable<Settable> manyToManyGetters;
 
-    private EntityClass(Class type, Iterable<Settable> elements, ScanOption scanOption) {
+    private EntityClass(Class type, Iterable<Settable> elements, AccessType accessType, ScanOption scanOption) {
         this.type = type;
         this.scanOption = scanOption;
+        this.accessType = accessType;
+        this.requireNewInstance = false;
         List<Settable> settables = newArrayList(elements);
         Collections.sort(settables, NameComparator.COMPARATOR);
         this.elements = ImmutableList.copyOf(settables);
@@ -121,6 +133,15 @@ public class EntityClass {
         }
     }
 
+    private EntityClass(EntityClass shared) {
+        this.type = shared.type;
+        this.scanOption = shared.scanOption;
+        this.requireNewInstance = true;
+        this.elements = shared.elements;
+        this.accessType = shared.accessType;
+        this.oneToOnePredicate = shared.oneToOnePredicate;
+    }
+
     public static EntityClass from(final Class clazz) {
         return from(clazz, ScanOption.IgnoreOptionalOneToOne);
     }
@@ -147,6 +168,14 @@ public class EntityClass {
         }
     }
 
+    static CacheStats cacheStats() {
+        return CACHE.stats();
+    }
+
+    static long cacheSize() {
+        return CACHE.size();
+    }
+
     private static EntityClass createEntityClass(Class rootClass, ScanOption scanOption) {
         List<Settable> settables = Lists.newArrayList(getSettables(rootClass, rootClass));
         Class<?> superClass = rootClass.getSuperclass();
@@ -155,30 +184,49 @@ public class EntityClass {
             superClass = superClass.getSuperclass();
         }
         Iterable<Settable> elements = Iterables.filter(settables, Predicates.not(has(Transient.class)));
-        return new EntityClass(rootClass, elements, scanOption);
+        AccessType accessType = isAccessTypeIsField(rootClass) ? AccessType.FIELD : AccessType.PROPERTY;
+        return new EntityClass(rootClass, elements, accessType, scanOption);
     }
 
     private static List<Settable> getSettables(Class rootClass, Class targetClass) {
         List<Field> fields = getInstanceFields(targetClass);
-        if (isAccessTypeIsField(targetClass)) {
-            // field based annotation
-            return Lists.transform(fields, new FieldToSettableFunction(rootClass));
-        } else {
-            // property based annotation
-            List<Settable> result = Lists.newArrayList();
-            Map<String, PropertyDescriptor> descriptors = getPropertyDescriptors(targetClass);
+        boolean accessTypeIsField = isAccessTypeIsField(targetClass);
+        List<Settable> result = Lists.newArrayList();
+        Map<String, PropertyDescriptor> descriptors = getPropertyDescriptors(targetClass);
 
-            for (Field field : fields) {
-                String fieldName = field.getName();
-                PropertyDescriptor propertyDescriptor = descriptors.get(fieldName);
-                if (propertyDescriptor == null || propertyDescriptor.getReadMethod() == null) {
-                    result.add(SettableField.from(rootClass, field));
-                } else {
-                    result.add(SettableProperty.from(rootClass, propertyDescriptor));
-                }
+        for (Field field : fields) {
+            PropertyDescriptor propertyDescriptor = descriptors.get(field.getName());
+            boolean hasGetter = propertyDescriptor != null && propertyDescriptor.getReadMethod() != null;
+            boolean useProperty;
+            if (accessTypeIsField) {
+                // field based annotation unless the getter overrides it
+                useProperty = hasGetter && hasAccess(propertyDescriptor.getReadMethod(), AccessType.PROPERTY);
+            } else {
+                // property based annotation unless the field overrides it
+                useProperty = hasGetter && !hasAccess(field, AccessType.FIELD);
+            }
+            if (useProperty) {
+                result.add(SettableProperty.from(rootClass, propertyDescriptor));
+            } else {
+                result.add(SettableField.from(rootClass, field));
             }
-            return result;
         }
+        return result;
+    }
+
+    private static boolean hasAccess(AnnotatedElement element, AccessType accessType) {
+        Access access = element.getAnnotation(Access.class);
+        return access != null && access.value() == accessType;
+    }
+
+    /**
+     * @param element
+     *         element of this class
+     * @return access type of the element. Access annotation on the element overrides the class access type.
+     */
+    public AccessType getAccessType(Settable element) {
+        Access access = element.getAnnotation(Access.class);
+        return access != null ? access.value() : accessType;
     }
 
     /**
@@ -188,11 +236,25 @@ public class EntityClass {
         if (requiredEntityTypes == null) {
             Iterable<EntityClass> manyToOne = transform(filter(elements, has(ManyToOne.class)), new TypeFunction(scanOption, false));
             Iterable<EntityClass> oneToOne = transform(filter(elements, oneToOnePredicate), new TypeFunction(scanOption, true));
-            requiredEntityTypes = Iterables.concat(manyToOne, oneToOne);
+            // resolved once. Together they form the (immutable) dependency graph of the entity model
+            requiredEntityTypes = ImmutableList.copyOf(Iterables.concat(manyToOne, oneToOne));
         }
         return requiredEntityTypes;
     }
 
+    /**
+     * @return same entity class but marked as requiring new instance (i.e. referenced by required OneToOne)
+     */
+    private EntityClass requireNewInstanceView() {
+        if (requireNewInstance) {
+            return this;
+        }
+        if (requireNewInstanceView == null) {
+            requireNewInstanceView = new EntityClass(this);
+        }
+        return requireNewInstanceView;
+    }
+
     /**
      * @return elements that will return associations (OneToMany collections)
      */
@@ -230,8 +292,7 @@ public class EntityClass {
         @Override
         public EntityClass apply(Settable input) {
             EntityClass entityClass = EntityClass.from(ClassUtil.getRawType(input.getType()), scanOption);
-            entityClass.setRequireNewInstance(requireNewInstance);
-            return entityClass;
+            return requireNewInstance ? entityClass.requireNewInstanceView() : entityClass;
         }
     }
 
@@ -244,14 +305,4 @@ public class EntityClass {
             return oneToOne != null && !oneToOne.optional();
         }
     }
-
-    @RequiredArgsConstructor
-    private static class FieldToSettableFunction implements Function<Field, Settable> {
-        private final Class ownerType;
-
-        @Override
-        public Settable apply(Field input) {
-            return SettableField.from(ownerType, input);
-        }
-    }
 }
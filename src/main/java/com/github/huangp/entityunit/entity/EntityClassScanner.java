@@ -1,19 +1,19 @@
 package com.github.huangp.entityunit.entity;
 
-import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.persistence.Entity;
 import java.lang.annotation.Annotation;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
@@ -23,7 +23,7 @@ import java.util.concurrent.ExecutionException;
 @Slf4j
 class EntityClassScanner {
     private static Cache<CacheKey, Iterable<EntityClass>> cache = CacheBuilder.newBuilder()
-            .maximumSize(100)
+            .recordStats()
             .build();
     private final ScanOption scanOption;
 
@@ -48,52 +48,59 @@ class EntityClassScanner {
         }
     }
 
+    static CacheStats cacheStats() {
+        return cache.stats();
+    }
+
     private Iterable<EntityClass> doRealScan(Class clazz) {
         List<EntityClass> current = Lists.newArrayList();
-        recursiveScan(clazz, current);
+        recursiveScan(clazz, current, Sets.<Class>newIdentityHashSet(), Sets.<Class>newIdentityHashSet());
         return ImmutableList.copyOf(current);
     }
 
-    private void recursiveScan(final Class clazz, List<EntityClass> current) {
+    /**
+     * Depth first walk of the dependency graph. Depending types of a class are added after their own depending types.
+     *
+     * @param clazz
+     *         class under scan
+     * @param current
+     *         accumulated result
+     * @param added
+     *         types in current result
+     * @param inProgress
+     *         types on current scan path
+     */
+    private void recursiveScan(final Class clazz, List<EntityClass> current, Set<Class> added, Set<Class> inProgress) {
         String classUnderScan = clazz.getName();
         log.debug("scanning class: {}", classUnderScan);
 
         Annotation entityAnnotation = clazz.getAnnotation(Entity.class);
         Preconditions.checkState(entityAnnotation != null, "This scans only entity class");
 
-        EntityClass startNode = getOrCreateNode(current, clazz);
-        if (current.contains(startNode)) {
-            log.trace("{} has been scanned", startNode);
+        if (added.contains(clazz)) {
+            log.trace("{} has been scanned", classUnderScan);
             return;
         }
-        Iterable<EntityClass> dependingTypes = startNode.getDependingEntityTypes();
+        Preconditions.checkState(inProgress.add(clazz), "entity classes reference each other in a cycle: %s",
+                inProgress);
+        Iterable<EntityClass> dependingTypes = EntityClass.from(clazz, scanOption).getDependingEntityTypes();
 
         for (EntityClass dependingType : dependingTypes) {
             if (!dependingType.getType().equals(clazz)) {
-                recursiveScan(dependingType.getType(), current);
+                recursiveScan(dependingType.getType(), current, added, inProgress);
             }
         }
-        //      Iterable<EntityClass> dependents = Iterables.transform(dependingTypes, new Function<Class<?>, EntityClass>()
-        //      {
-        //         @Override
-        //         public EntityClass apply(Class<?> input)
-        //         {
-        //            return EntityClass.from(input, scanOption);
-        //         }
-        //      });
-
-        Iterables.addAll(current, dependingTypes);
-        current.remove(startNode); // remove itself
-    }
+        inProgress.remove(clazz);
 
-    private EntityClass getOrCreateNode(List<EntityClass> current, final Class<?> entityType) {
-        Optional<EntityClass> dependingOptional = Iterables.tryFind(current, new Predicate<EntityClass>() {
-            @Override
-            public boolean apply(EntityClass input) {
-                return input.getType() == entityType;
+        boolean selfSkipped = false;
+        for (EntityClass dependingType : dependingTypes) {
+            // itself is not a depending type (first self reference is removed)
+            if (!selfSkipped && dependingType.getType().equals(clazz)) {
+                selfSkipped = true;
+                continue;
             }
-        });
-        return dependingOptional.isPresent() ? dependingOptional.get() : EntityClass.from(entityType, scanOption);
+            current.add(dependingType);
+            added.add(dependingType.getType());
+        }
     }
-
 }
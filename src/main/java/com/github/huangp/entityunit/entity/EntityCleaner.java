@@ -4,11 +4,17 @@ import com.github.huangp.entityunit.util.ClassUtil;
 import com.github.huangp.entityunit.util.HasAnnotationPredicate;
 import com.github.huangp.entityunit.util.Settable;
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.persistence.ElementCollection;
@@ -19,6 +25,9 @@ import javax.persistence.ManyToMany;
 import javax.persistence.Query;
 import java.io.Serializable;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import static com.github.huangp.entityunit.util.HasAnnotationPredicate.has;
 import static com.google.common.base.Predicates.and;
@@ -33,17 +42,38 @@ import static com.google.common.collect.Iterables.transform;
  */
 @Slf4j
 public final class EntityCleaner {
+    private static final Cache<Set<Class>, List<String>> TABLES_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(100)
+            .build();
+
     private EntityCleaner() {
     }
 
 
-    static void deleteAll(EntityManager entityManager, Class... entityClasses) {
-        for (Class clazz : entityClasses) {
-            EntityClass entityClass = EntityClass.from(clazz, ScanOption.IncludeOneToOne);
-
+    /**
+     * Delete all records from given entity representing tables and their many to many and element collection tables.
+     * <p/>
+     * The entity classes can be given in any order. Referencing entities will be deleted before referenced entities
+     * (based on ManyToOne and OneToOne with JoinColumn mappings). All many to many and element collection tables are
+     * deleted first.
+     * <p/>
+     * The computed delete plan is cached per set of entity classes.
+     *
+     * @param entityManager
+     *         entity manager
+     * @param entityClasses
+     *         entity classes in any order
+     * @throws IllegalStateException
+     *         if entity classes reference each other in a cycle
+     */
+    public static void deleteAll(EntityManager entityManager, Class... entityClasses) {
+        DeletePlan plan = DeletePlan.of(entityClasses);
+        for (String table : plan.getAssociationTables()) {
+            deleteTable(entityManager, table);
+        }
+        for (Class entityType : plan.getEntityTypes()) {
+            deleteEntity(entityManager, ClassUtil.getEntityName(entityType));
         }
-        //TODO giving entity classes in arbitrary order and this can sort it out
-        throw new UnsupportedOperationException("Implement me!");
     }
 
     /**
@@ -70,6 +100,56 @@ public final class EntityCleaner {
         }
     }
 
+    /**
+     * Truncate given entity representing tables and their many to many and element collection tables.
+     * <p/>
+     * This is much faster than deleteAll for big tables. Referential integrity is disabled during truncation if the
+     * database allows, therefore entity classes can be given in any order.
+     * The table list is resolved once per set of entity classes.
+     * <p/>
+     * <b>NOTE:</b> In most databases truncate will commit current transaction.
+     * <p/>
+     * Table names are resolved from mapping annotations (see ClassUtil#getTableName). Entities relying on a custom
+     * naming strategy of the JPA provider need an explicit Table name.
+     *
+     * @param entityManager
+     *         entity manager
+     * @param dialect
+     *         database specific way of truncating tables
+     * @param entityClasses
+     *         entity classes in any order
+     * @throws IllegalArgumentException
+     *         if an entity is a subclass in a SINGLE_TABLE hierarchy. Its table also holds other entities of the
+     *         hierarchy so truncate the root entity instead.
+     */
+    public static void truncateAll(EntityManager entityManager, TruncateDialect dialect, Class... entityClasses) {
+        List<String> tables = getTables(ImmutableSet.copyOf(entityClasses));
+        if (!tables.isEmpty()) {
+            dialect.truncate(entityManager, tables);
+        }
+    }
+
+    private static List<String> getTables(final Set<Class> entityTypes) {
+        try {
+            return TABLES_CACHE.get(entityTypes, new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws Exception {
+                    Set<String> tables = Sets.newLinkedHashSet();
+                    for (Class entityType : entityTypes) {
+                        Preconditions.checkArgument(ClassUtil.getTableOwner(entityType) == entityType,
+                                "%s shares the table of %s. Truncate the root entity instead.", entityType,
+                                ClassUtil.getTableOwner(entityType));
+                        Iterables.addAll(tables, getAssociationTables(EntityClass.from(entityType)));
+                        tables.add(ClassUtil.getTableName(entityType));
+                    }
+                    return ImmutableList.copyOf(tables);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
     /**
      * Delete all records from given entity representing tables except exclusion. Exclusion are given as entity object.
      * So a match on id will be used.
@@ -137,7 +217,7 @@ public final class EntityCleaner {
     /**
      * This will find all ManyToMany and ElementCollection annotated tables.
      */
-    private static Iterable<String> getAssociationTables(EntityClass entityClass) {
+    static Iterable<String> getAssociationTables(EntityClass entityClass) {
         Iterable<Settable> association = filter(entityClass.getElements(),
                 and(or(has(ManyToMany.class), has(ElementCollection.class)), has(JoinTable.class)));
         return transform(association, new Function<Settable, String>() {
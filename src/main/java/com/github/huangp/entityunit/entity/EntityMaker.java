@@ -3,6 +3,7 @@ package com.github.huangp.entityunit.entity;
 import com.github.huangp.entityunit.holder.BeanValueHolder;
 
 import javax.persistence.EntityManager;
+import java.util.Iterator;
 
 /**
  * Maker for making and persisting entities.
@@ -64,6 +65,110 @@ public interface EntityMaker {
      */
     <T> T makeAndPersist(EntityManager entityManager, Class<T> entityType, Callback callback);
 
+    /**
+     * Make and persist given number of entities of the given type.
+     * <p/>
+     * The dependency graph is resolved once and depending entities are reused by all made entities.
+     * Entities are persisted in chunks (see {@link EntityMakerBuilder#batchSize(int)}). After each chunk the entity
+     * manager is flushed and entities made only for that chunk are detached so that the persistence context won't
+     * grow unbounded.
+     * Reused entities only have made entities added to one to many collections that own the association (i.e. a
+     * JoinColumn on the one side). Inverse (mappedBy) collections of reused entities are left alone.
+     * <pre>
+     * {@code
+     *
+     * // Given:
+     * // Category <--- oneToMany --- LineItem
+     *
+     * EntityMaker maker = EntityMakerBuilder.builder().batchSize(100).build();
+     * Iterable<LineItem> items = maker.makeAndPersistMany(entityManager, LineItem.class, 1000);
+     *
+     * // you should have 1000 LineItem records in database all referencing the same Category record.
+     * }
+     * </pre>
+     *
+     * @param entityManager
+     *         entity manager that know about the entity
+     * @param entityType
+     *         entity type
+     * @param count
+     *         number of entities to make
+     * @param <T>
+     *         entity type
+     * @return made and persisted entities. They are loaded by id lazily: every iteration calls EntityManager#find
+     *         for each element. Copy it into a list if you need to iterate it more than once.
+     */
+    <T> Iterable<T> makeAndPersistMany(EntityManager entityManager, Class<T> entityType, int count);
+
+    /**
+     * Similar to {@link EntityMaker#makeAndPersistMany(EntityManager, Class, int)} with callback.
+     * <p/>
+     * The callback is invoked once for each made entity.
+     *
+     * @param entityManager
+     *         entity manager that know about the entity
+     * @param entityType
+     *         entity type
+     * @param count
+     *         number of entities to make
+     * @param callback
+     *         callback that can be injected before and after persist
+     * @param <T>
+     *         entity type
+     * @return made and persisted entities. They are loaded by id lazily: every iteration calls EntityManager#find
+     *         for each element.
+     * @see Callback
+     */
+    <T> Iterable<T> makeAndPersistMany(EntityManager entityManager, Class<T> entityType, int count, Callback callback);
+
+    /**
+     * Make an unbounded lazy sequence of the given type of entity without persisting them.
+     * <p/>
+     * Each call to next() makes one entity. Depending entities are made with the first entity and reused afterwards.
+     * Reused entities won't have made entities added to their one to many side so that iterating doesn't hold every
+     * made entity in memory.
+     * <pre>
+     * {@code
+     *
+     * // Given:
+     * // Category <--- oneToMany --- LineItem
+     *
+     * Iterator<LineItem> items = Iterators.limit(maker.makeLazily(LineItem.class), 1000000);
+     * while (items.hasNext()) {
+     *     exporter.write(items.next());
+     * }
+     * // all items reference the same Category instance
+     * }
+     * </pre>
+     *
+     * @param entityType
+     *         entity type
+     * @param <T>
+     *         entity type
+     * @return unbounded iterator of made entities. Use i.e. Iterators.limit to bound it.
+     */
+    <T> Iterator<T> makeLazily(Class<T> entityType);
+
+    /**
+     * Similar to {@link EntityMaker#makeLazily(Class)} but each made entity and its new depending entities are
+     * persisted.
+     * <p/>
+     * Every {@link EntityMakerBuilder#batchSize(int)} entities the entity manager is flushed and entities made only
+     * for those entities are detached.
+     * Unlike makeLazily, reused entities still have made entities added to one to many collections that own the
+     * association (i.e. a JoinColumn on the one side). Those collections grow with the number of iterated entities.
+     * Inverse (mappedBy) collections of reused entities are left alone.
+     *
+     * @param entityManager
+     *         entity manager that know about the entity
+     * @param entityType
+     *         entity type
+     * @param <T>
+     *         entity type
+     * @return unbounded iterator of made and persisted entities. Use i.e. Iterators.limit to bound it.
+     */
+    <T> Iterator<T> makeAndPersistLazily(EntityManager entityManager, Class<T> entityType);
+
     /**
      * Provide callback functionality before and after persistence.
      *
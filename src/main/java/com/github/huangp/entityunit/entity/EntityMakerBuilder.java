@@ -1,13 +1,25 @@
 package com.github.huangp.entityunit.entity;
 
 import com.github.huangp.entityunit.holder.BeanValueHolder;
+import com.github.huangp.entityunit.holder.ConcurrentBeanValueHolder;
 import com.github.huangp.entityunit.maker.Maker;
 import com.github.huangp.entityunit.maker.PreferredValueMakersRegistry;
+import com.github.huangp.entityunit.maker.ValueGenerator;
+import com.github.huangp.entityunit.metrics.AbstractNoOpMakeListener;
+import com.github.huangp.entityunit.metrics.MakeListener;
+import com.github.huangp.entityunit.metrics.MakeStatistics;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.persistence.EntityManager;
 import java.io.Serializable;
+import java.sql.Connection;
 import java.util.Collection;
 import java.util.List;
 
@@ -24,9 +36,19 @@ import java.util.List;
 @NoArgsConstructor(staticName = "builder")
 @Slf4j
 public class EntityMakerBuilder {
+    public static final int DEFAULT_BATCH_SIZE = 50;
     private ScanOption scanOption = ScanOption.IgnoreOptionalOneToOne;
     private BeanValueHolder valueHolder = new BeanValueHolder();
     private PreferredValueMakersRegistry registry = new PreferredValueMakersRegistry();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean concurrent;
+    private ValueGenerator valueGenerator = ValueGenerator.random();
+    private Function<EntityManager, Connection> jdbcConnection;
+    private IdAllocator idAllocator;
+    private FlushPolicy flushPolicy = FlushPolicy.NEVER;
+    private MakeListener listener = AbstractNoOpMakeListener.NO_OP_LISTENER;
+    private final List<FanOut.Branch> fanOutBranches = Lists.newArrayList();
+    private final ListMultimap<Class<?>, Serializable> fixedIds = ArrayListMultimap.create();
 
     /**
      * This is the default option. When making entities, unless there is reusable entity, optional OneToOne mapped entity will be ignored.
@@ -132,6 +154,207 @@ public class EntityMakerBuilder {
         return this;
     }
 
+    /**
+     * Number of entities EntityMaker#makeAndPersistMany will persist before it flushes the entity manager.
+     * Match it with hibernate.jdbc.batch_size to get JDBC batch inserts.
+     *
+     * @param batchSize
+     *         chunk size (default is 50)
+     * @return this
+     * @see EntityMaker#makeAndPersistMany(javax.persistence.EntityManager, Class, int)
+     */
+    public EntityMakerBuilder batchSize(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batch size must be positive: %s", batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * When EntityMaker#makeAndPersist should flush the entity manager and detach made entities. Keeps per call
+     * latency flat when making a lot of entities with one entity manager.
+     *
+     * @param flushPolicy
+     *         flush policy (default is FlushPolicy.NEVER)
+     * @return this
+     * @see FlushPolicy
+     */
+    public EntityMakerBuilder flushPolicy(FlushPolicy flushPolicy) {
+        this.flushPolicy = Preconditions.checkNotNull(flushPolicy);
+        return this;
+    }
+
+    /**
+     * Generate strings, numbers and dates from given seed instead of random values.
+     * <p/>
+     * Given the same seed, the same entity model and the same sequence of make calls, made entities will have the same
+     * values.
+     *
+     * @param seed
+     *         seed
+     * @return this
+     * @see ValueGenerator#seeded(long)
+     */
+    public EntityMakerBuilder seed(long seed) {
+        valueGenerator = ValueGenerator.seeded(seed);
+        return this;
+    }
+
+    /**
+     * Make given number of children for a OneToMany collection of the asked for entity.
+     * <p/>
+     * Children are made in the same pass as the owner, added to the owner's collection in made order (so
+     * IndexColumn/OrderColumn follow it) and persisted after the owner grouped by type. Children may fan out further.
+     * Only the entity asked for (and, recursively, fanned out children) fan out. Depending entities made along the
+     * way do not, i.e. making a HTextFlow does not fan out the HDocument made for it.
+     * <pre>
+     * {@code
+     *
+     * EntityMaker maker = EntityMakerBuilder.builder()
+     *         .fanOut(HProject.class, "projectIterations", 3)
+     *         .fanOut(HProjectIteration.class, "documents", 10)
+     *         .fanOut(HDocument.class, "textFlows", 500)
+     *         .build();
+     * // 1 project, 3 iterations, 30 documents and 15000 text flows
+     * maker.makeAndPersist(entityManager, HProject.class);
+     * }
+     * </pre>
+     * The collection has to be initialized by the owner. Calling it again for the same collection replaces the count.
+     *
+     * @param ownerType
+     *         owner entity type
+     * @param collectionName
+     *         OneToMany collection field or property name
+     * @param count
+     *         number of children per owner
+     * @return this
+     */
+    public EntityMakerBuilder fanOut(Class<?> ownerType, String collectionName, int count) {
+        fanOutBranches.add(FanOut.branch(ownerType, collectionName, count));
+        return this;
+    }
+
+    /**
+     * Insert made entities with JDBC batches instead of EntityManager.persist.
+     * <p/>
+     * Rows are written one batch per table at the end of each makeAndPersist call (or each makeAndPersistMany chunk),
+     * referenced tables first. This is much faster for large fixtures but:
+     * <pre>
+     * Made entities are not managed by the entity manager.
+     * Generated ids are allocated from max(id) + 1 of each table (see idAllocator). Database sequences are not advanced.
+     * Owning side many to many join table rows are written if JoinTable names its table and join columns.
+     * Element collection tables are not.
+     * Entity inheritance and embedded types are not supported.
+     * Table and column names are read from mapping annotations. Without a name they default to the entity and
+     * field/property names as they are, the JPA provider's naming strategy is not applied.
+     * </pre>
+     * The connection must be the one used by the entity manager so that inserts are in the same transaction, i.e. for
+     * hibernate:
+     * <pre>
+     * {@code
+     *
+     * new Function<EntityManager, Connection>() {
+     *     public Connection apply(EntityManager entityManager) {
+     *         return ((SessionImplementor) entityManager.unwrap(Session.class)).connection();
+     *     }
+     * }
+     * }
+     * </pre>
+     *
+     * @param connectionOf
+     *         function to get the JDBC connection of an entity manager
+     * @return this
+     * @see EntityMaker#makeAndPersistMany(javax.persistence.EntityManager, Class, int)
+     */
+    public EntityMakerBuilder jdbcBatchInsert(Function<EntityManager, Connection> connectionOf) {
+        jdbcConnection = Preconditions.checkNotNull(connectionOf);
+        return this;
+    }
+
+    /**
+     * How JDBC batch insert allocates generated ids. Ids are assigned before rows are written, so made entities know
+     * their ids and all inserts of a table can be batched. Share one allocator between EntityMakers writing the same
+     * tables.
+     *
+     * @param idAllocator
+     *         id allocator (default is IdAllocator.fromMaxId())
+     * @return this
+     * @see IdAllocator
+     * @see #jdbcBatchInsert(com.google.common.base.Function)
+     */
+    public EntityMakerBuilder idAllocator(IdAllocator idAllocator) {
+        this.idAllocator = Preconditions.checkNotNull(idAllocator);
+        return this;
+    }
+
+    /**
+     * Insert the first made entities of given type with given ids instead of generated ids.
+     * <p/>
+     * Ids are assigned right after an entity is made, so entities referencing it (or referenced by its one to many
+     * side) are inserted with the wanted id in the same pass. This replaces FixIdCallback's update, detach and find
+     * after each persist and works with associations. Once the wanted ids run out, entities get generated ids that
+     * won't collide with them.
+     * <pre>
+     * {@code
+     *
+     * EntityMaker maker = EntityMakerBuilder.builder()
+     *         .jdbcBatchInsert(connectionOf)
+     *         .fixIds(HProject.class, 1L)
+     *         .fixIds(HProjectIteration.class, 10L, 11L)
+     *         .build();
+     * // project 1 with iterations 10 and 11
+     * maker.makeAndPersistMany(entityManager, HProjectIteration.class, 2);
+     * }
+     * </pre>
+     * JPA can not persist an entity with a generated id that is already set, therefore this requires jdbcBatchInsert.
+     *
+     * @param entityType
+     *         entity type
+     * @param ids
+     *         wanted ids in made order
+     * @return this
+     * @see FixIdCallback
+     * @see #jdbcBatchInsert(com.google.common.base.Function)
+     */
+    public EntityMakerBuilder fixIds(Class<?> entityType, Serializable... ids) {
+        for (Serializable id : ids) {
+            FixedIds.checkIdType(entityType, id);
+            fixedIds.put(entityType, id);
+        }
+        return this;
+    }
+
+    /**
+     * Get notified of timings of each phase, made/reused entities and made values.
+     * Use MakeListeners#chain to have more than one listener.
+     *
+     * @param listener
+     *         listener, i.e. MakeStatistics or MakeTrace
+     * @return this
+     * @see MakeStatistics
+     * @see com.github.huangp.entityunit.metrics.MakeTrace
+     */
+    public EntityMakerBuilder listener(MakeListener listener) {
+        this.listener = Preconditions.checkNotNull(listener);
+        return this;
+    }
+
+    /**
+     * Build an EntityMaker that can be used by multiple threads at the same time.
+     * <p/>
+     * Entities given to reuse methods become shared reference data. They are reused by all threads but will never be
+     * altered (i.e. made entities won't be added to their one to many collections). Entities made by a thread are only
+     * reused by the same thread with the same EntityManager.
+     * <p/>
+     * Preferred value makers are shared by all threads so stateful makers have to be thread safe.
+     *
+     * @return this
+     * @see ConcurrentBeanValueHolder
+     */
+    public EntityMakerBuilder concurrent() {
+        concurrent = true;
+        return this;
+    }
+
     /**
      * @return EntityMaker
      */
@@ -139,8 +362,27 @@ public class EntityMakerBuilder {
 
         log.debug("registry: {}", registry);
         log.debug("bean value holder: {}", valueHolder);
+        log.debug("value generator: {}", valueGenerator);
+        log.debug("flush policy: {}", flushPolicy);
+        FanOut fanOut = FanOut.of(fanOutBranches);
+        log.debug("fan out: {}", fanOut);
+        Preconditions.checkState(fixedIds.isEmpty() || jdbcConnection != null, "fixed ids require JDBC batch insert");
+        Preconditions.checkState(idAllocator == null || jdbcConnection != null,
+                "id allocator requires JDBC batch insert");
         EntityClassScanner scanner = new EntityClassScanner(scanOption);
-        MakeContext context = new MakeContext(valueHolder, registry);
-        return new EntityMakerImpl(scanner, context);
+        if (concurrent) {
+            Preconditions.checkState(jdbcConnection == null, "JDBC batch insert can not be used concurrently");
+            ConcurrentBeanValueHolder concurrentValueHolder = new ConcurrentBeanValueHolder(valueHolder);
+            MakeContext context = new MakeContext(concurrentValueHolder, registry, valueGenerator,
+                    listener);
+            return new ConcurrentEntityMakerImpl(scanner, context, batchSize, flushPolicy, fanOut,
+                    concurrentValueHolder);
+        }
+        MakeContext context = new MakeContext(valueHolder, registry, valueGenerator, listener);
+        FixedIds wantedIds = FixedIds.of(fixedIds);
+        EntityPersister persister = jdbcConnection == null ? JpaEntityPersister.PERSISTER
+                : new JdbcBatchPersister(jdbcConnection, wantedIds,
+                        idAllocator == null ? IdAllocator.fromMaxId() : idAllocator);
+        return new EntityMakerImpl(scanner, context, batchSize, persister, flushPolicy, fanOut, wantedIds);
     }
 }
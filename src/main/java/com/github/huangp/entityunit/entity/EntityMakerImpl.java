@@ -2,22 +2,37 @@ package com.github.huangp.entityunit.entity;
 
 import com.github.huangp.entityunit.holder.BeanValueHolder;
 import com.github.huangp.entityunit.maker.BeanMaker;
+import com.github.huangp.entityunit.metrics.MakeListener;
 import com.github.huangp.entityunit.util.ClassUtil;
 import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableList;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
+import com.google.common.collect.Sets;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jodah.typetools.TypeResolver;
 
 import javax.persistence.EntityManager;
+import javax.persistence.OneToMany;
 import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 /**
  * @author Patrick Huang
@@ -27,11 +42,33 @@ class EntityMakerImpl implements EntityMaker {
     private final EntityClassScanner scanner;
     private final MakeContext context;
     private final BeanValueHolder valueHolder;
+    private final int batchSize;
+    private final EntityPersister persister;
+    private final FlushPolicy flushPolicy;
+    private final FanOut fanOut;
+    private final FixedIds fixedIds;
+    private final MakeListener listener;
+    // entity manager -> entities made by makeAndPersist since last flush
+    private final LoadingCache<EntityManager, MadeSinceFlush> madeSinceFlush = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<EntityManager, MadeSinceFlush>() {
+                @Override
+                public MadeSinceFlush load(EntityManager key) throws Exception {
+                    return new MadeSinceFlush();
+                }
+            });
 
-    EntityMakerImpl(EntityClassScanner scanner, MakeContext context) {
+    EntityMakerImpl(EntityClassScanner scanner, MakeContext context, int batchSize, EntityPersister persister,
+                    FlushPolicy flushPolicy, FanOut fanOut, FixedIds fixedIds) {
         this.scanner = scanner;
         this.context = context;
+        this.batchSize = batchSize;
+        this.persister = persister;
+        this.flushPolicy = flushPolicy;
+        this.fanOut = fanOut;
+        this.fixedIds = fixedIds;
         valueHolder = context.getBeanValueHolder();
+        listener = context.getListener();
     }
 
     @Override
@@ -41,35 +78,290 @@ class EntityMakerImpl implements EntityMaker {
 
     @Override
     public <T> T makeAndPersist(EntityManager entityManager, Class<T> entityType, Callback callback) {
-        Iterable<Object> allObjects = getRequiredEntitiesFor(entityType);
+        bindSession(entityManager);
+        Iterable<Object> toReturn = makeAndPersistInOrder(entityManager, entityType, scan(entityType),
+                ImmutableSet.<Object>of(), callback, true);
+        T entity = ClassUtil.findEntity(toReturn, entityType);
+        applyFlushPolicy(entityManager, entityType, toReturn);
+        return entity;
+    }
+
+    private void applyFlushPolicy(EntityManager entityManager, Class<?> entityType, Iterable<Object> persisted) {
+        if (flushPolicy == FlushPolicy.NEVER) {
+            return;
+        }
+        MadeSinceFlush made = madeSinceFlush.getUnchecked(entityManager);
+        made.calls++;
+        for (Object entity : persisted) {
+            made.add(entity);
+        }
+        if (!flushPolicy.shouldFlush(made.calls, made.entities.size(), made.estimatedBytes)) {
+            return;
+        }
+        List<Object> chunk = Lists.newArrayListWithCapacity(made.entities.size());
+        List<Object> held = Lists.newArrayList();
+        for (Object entity : made.entities) {
+            Optional<?> holding = valueHolder.tryGet(entity.getClass());
+            if (holding.isPresent() && holding.get() == entity) {
+                held.add(entity);
+            } else {
+                chunk.add(entity);
+            }
+        }
+        flush(entityManager, entityType, chunk);
+        made.clear();
+        for (Object entity : replaceHeld(entityManager, held)) {
+            made.add(entity);
+        }
+    }
+
+    /**
+     * Replace managed entities held for reuse with freshly loaded instances. The held instances are detached so that
+     * whatever they collected (i.e. every made entity in an inverse one to many collection) can be garbage collected.
+     * The loaded instances are real entities rather than getReference proxies since made entities are read and
+     * written through their fields. Entities inserted with JDBC are not managed and are kept as they are.
+     *
+     * @param held
+     *         held entities in the order they were made (referenced entities first)
+     * @return entities held from now on
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> replaceHeld(EntityManager entityManager, List<Object> held) {
+        List<Object> managed = Lists.newArrayListWithCapacity(held.size());
+        List<Object> replaced = Lists.newArrayListWithCapacity(held.size());
+        for (Object entity : held) {
+            if (entityManager.contains(entity)) {
+                managed.add(entity);
+            } else {
+                replaced.add(entity);
+            }
+        }
+        for (Object entity : managed) {
+            entityManager.detach(entity);
+        }
+        // referenced entities are loaded first so that entities referencing them get the same instances
+        for (Object entity : managed) {
+            Class<Object> entityType = (Class<Object>) entity.getClass();
+            Serializable id = ClassUtil.getIdentityField(entity).valueIn(entity);
+            Object loaded = entityManager.find(entityType, id);
+            valueHolder.putIfNotNull(entityType, loaded);
+            replaced.add(loaded);
+        }
+        log.debug("replaced {} held entities with loaded ones", managed.size());
+        return replaced;
+    }
+
+    @Override
+    public <T> Iterable<T> makeAndPersistMany(EntityManager entityManager, Class<T> entityType, int count) {
+        return makeAndPersistMany(entityManager, entityType, count, AbstractNoOpCallback.NO_OP_CALLBACK);
+    }
+
+    @Override
+    public <T> Iterable<T> makeAndPersistMany(final EntityManager entityManager, final Class<T> entityType, int count,
+                                              Callback callback) {
+        Preconditions.checkArgument(count >= 0, "count must not be negative: %s", count);
+        bindSession(entityManager);
+        // resolve the dependency graph once for all entities
+        Iterable<EntityClass> dependingEntities = scan(entityType);
 
+        List<Serializable> ids = Lists.newArrayListWithCapacity(count);
+        List<Object> chunk = Lists.newArrayListWithCapacity(batchSize);
+        for (int i = 0; i < count; i++) {
+            Iterable<Object> persisted = makeAndPersistInOrder(entityManager, entityType, dependingEntities,
+                    getReusableEntities(dependingEntities), callback, false);
+            T entity = ClassUtil.findEntity(persisted, entityType);
+            ids.add(ClassUtil.getIdentityField(entity).<Serializable>valueIn(entity));
+
+            // depending entities made by the first call are reused from now on
+            addNotReusable(chunk, persisted, getReusableEntities(dependingEntities));
+            if ((i + 1) % batchSize == 0) {
+                flush(entityManager, entityType, chunk);
+            }
+        }
+        flush(entityManager, entityType, chunk);
+
+        // made entities are detached by now. Loading them all here would put them back into the persistence context.
+        return Iterables.transform(ids, new Function<Serializable, T>() {
+            @Override
+            public T apply(Serializable id) {
+                return entityManager.find(entityType, id);
+            }
+        });
+    }
+
+    @Override
+    public <T> Iterator<T> makeLazily(final Class<T> entityType) {
+        final Iterable<EntityClass> dependingEntities = scan(entityType);
+        return new AbstractIterator<T>() {
+            @Override
+            protected T computeNext() {
+                bindSession(this);
+                Set<Object> reusable = getReusableEntities(dependingEntities);
+                Iterable<Object> made = getRequiredEntitiesFor(entityType, dependingEntities, reusable, false);
+                return ClassUtil.findEntity(made, entityType);
+            }
+        };
+    }
+
+    @Override
+    public <T> Iterator<T> makeAndPersistLazily(final EntityManager entityManager, final Class<T> entityType) {
+        final Iterable<EntityClass> dependingEntities = scan(entityType);
+        return new AbstractIterator<T>() {
+            private final List<Object> chunk = Lists.newArrayListWithCapacity(batchSize);
+            private long count;
+
+            @Override
+            protected T computeNext() {
+                bindSession(entityManager);
+                Iterable<Object> made = getRequiredEntitiesFor(entityType, dependingEntities,
+                        getReusableEntities(dependingEntities), true);
+                persist(entityManager, entityType, made, true);
+
+                addNotReusable(chunk, made, getReusableEntities(dependingEntities));
+                if (++count % batchSize == 0) {
+                    flush(entityManager, entityType, chunk);
+                }
+                return ClassUtil.findEntity(made, entityType);
+            }
+        };
+    }
+
+    /**
+     * Bind the value holder session to the owner before making entities.
+     *
+     * @param owner
+     *         entity manager or lazy iterator that is making entities
+     */
+    void bindSession(Object owner) {
+    }
+
+    /**
+     * @param readOnlyOwners
+     *         reused entities whose inverse one to many side will not be populated
+     * @param writeNow
+     *         whether persisted entities have to be in database before callback#afterPersist.
+     *         makeAndPersistMany writes them at the end of each chunk instead.
+     */
+    private Iterable<Object> makeAndPersistInOrder(EntityManager entityManager, Class<?> entityType,
+                                                   Iterable<EntityClass> dependingEntities,
+                                                   Set<Object> readOnlyOwners, Callback callback,
+                                                   boolean writeNow) {
+        Iterable<Object> allObjects = getRequiredEntitiesFor(entityType, dependingEntities, readOnlyOwners, true);
+
+        boolean listening = context.isListening();
+        long start = listening ? System.nanoTime() : 0;
         Iterable<Object> toPersist = callback.beforePersist(entityManager, allObjects);
-        persistInOrder(entityManager, toPersist);
-        Iterable<Object> toReturn = callback.afterPersist(entityManager, toPersist);
+        long callbackNanos = listening ? System.nanoTime() - start : 0;
+
+        persist(entityManager, entityType, toPersist, writeNow);
+
+        start = listening ? System.nanoTime() : 0;
+        Iterable<Object> persisted = callback.afterPersist(entityManager, toPersist);
+        if (listening) {
+            listener.phaseCompleted(MakeListener.Phase.CALLBACK, entityType,
+                    callbackNanos + System.nanoTime() - start);
+        }
+        return persisted;
+    }
+
+    private Iterable<EntityClass> scan(Class<?> entityType) {
+        boolean listening = context.isListening();
+        long start = listening ? System.nanoTime() : 0;
+        Iterable<EntityClass> dependingEntities = scanner.scan(entityType);
+        if (listening) {
+            listener.phaseCompleted(MakeListener.Phase.SCAN, entityType, System.nanoTime() - start);
+        }
+        return dependingEntities;
+    }
 
-        return ClassUtil.findEntity(toReturn, entityType);
+    private void persist(EntityManager entityManager, Class<?> entityType, Iterable<Object> entities,
+                         boolean writeNow) {
+        boolean listening = context.isListening();
+        long start = listening ? System.nanoTime() : 0;
+        persister.persist(entityManager, entities);
+        if (writeNow) {
+            persister.write(entityManager);
+        }
+        if (listening) {
+            listener.phaseCompleted(MakeListener.Phase.PERSIST, entityType, System.nanoTime() - start);
+        }
     }
 
-    private Iterable<Object> getRequiredEntitiesFor(Class askingClass) {
-        Iterable<EntityClass> dependingEntities = scanner.scan(askingClass);
-        Queue<Object> queue = Queues.newLinkedBlockingQueue();
+    private void flush(EntityManager entityManager, Class<?> entityType, List<Object> chunk) {
+        boolean listening = context.isListening();
+        long start = listening ? System.nanoTime() : 0;
+        persister.flush(entityManager, chunk);
+        if (listening) {
+            listener.phaseCompleted(MakeListener.Phase.PERSIST, entityType, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Depending entities that will be reused by next make. They have to stay managed so that changes to their one to
+     * many side collections will be flushed.
+     */
+    private Set<Object> getReusableEntities(Iterable<EntityClass> dependingEntities) {
+        Set<Object> reusable = Sets.newIdentityHashSet();
+        for (EntityClass entityClass : dependingEntities) {
+            Optional<?> existing = valueHolder.tryGet(entityClass.getType());
+            if (!entityClass.isRequireNewInstance() && existing.isPresent()) {
+                reusable.add(existing.get());
+            }
+        }
+        return reusable;
+    }
+
+    private static void addNotReusable(List<Object> chunk, Iterable<Object> made, Set<Object> reusable) {
+        for (Object entity : made) {
+            if (!reusable.contains(entity)) {
+                chunk.add(entity);
+            }
+        }
+    }
+
+    /**
+     * @param askingClass
+     *         entity type to make
+     * @param dependingEntities
+     *         scanned depending entity types
+     * @param readOnlyOwners
+     *         reused entities whose one to many side will not be populated (to not hold every made entity)
+     * @param persisting
+     *         whether made entities will be persisted. If so read only owners still populate one to many collections
+     *         that own the association (join column and index column are written from that side).
+     * @return made or reused entities in persist order
+     */
+    private Queue<Object> getRequiredEntitiesFor(Class askingClass, Iterable<EntityClass> dependingEntities,
+                                                 Set<Object> readOnlyOwners, boolean persisting) {
+        boolean listening = context.isListening();
+        long start = listening ? System.nanoTime() : 0;
+        Queue<Object> queue = Queues.newArrayDeque();
 
         // create all depending (ManyToOne or required OneToOne) entities
         for (EntityClass entityClass : dependingEntities) {
             reuseOrMakeNew(queue, entityClass);
         }
         // we always make new asking class
-        Serializable askingEntity = new BeanMaker<Serializable>(askingClass, context).value();
-
-        context.getBeanValueHolder().putIfNotNull(askingClass, askingEntity);
+        Serializable askingEntity = makeNew(askingClass);
         queue.offer(askingEntity);
 
         // now work backwards to fill in the one to many side
         for (EntityClass entityNode : dependingEntities) {
-            Object entity = valueHolder.tryGet(entityNode.getType()).get();
+            Optional<?> owner = tryGetOneToManyOwner(entityNode.getType());
+            if (!owner.isPresent()) {
+                continue;
+            }
+            Object entity = owner.get();
+            boolean readOnly = readOnlyOwners.contains(entity);
+            if (readOnly && !persisting) {
+                continue;
+            }
 
             Iterable<Settable> elements = entityNode.getContainingEntitiesElements();
             for (Settable element : elements) {
+                if (readOnly && isInverseSide(element)) {
+                    continue;
+                }
                 Type returnType = element.getType();
                 if (ClassUtil.isCollection(returnType)) {
                     addManySideEntityIfExists(entity, element, valueHolder);
@@ -79,35 +371,89 @@ class EntityMakerImpl implements EntityMaker {
                 }
             }
         }
+        if (!fanOut.branchesOf(askingClass).isEmpty()) {
+            fanOut(queue, askingClass, askingEntity, readOnlyOwners, persisting);
+        }
         // required OneToOne mapping should have been set on entity creation
         // @see SingleEntityMaker
         // @see ReuseOrNullMaker
 
-        log.debug("entities made in order: {}", new NiceIterablePrinter(queue));
+        if (log.isDebugEnabled()) {
+            log.debug("entities made in order: {}", new NiceIterablePrinter(queue));
+        }
+        if (listening) {
+            listener.phaseCompleted(MakeListener.Phase.MAKE, askingClass, System.nanoTime() - start);
+        }
         return queue;
     }
 
+    /**
+     * Make children of the owner for each of its fan out branches. Children (and whatever they fan out to) are
+     * appended to the queue grouped by type so that each type is persisted together. Owners still come before their
+     * children since a type is first seen before the types made for it.
+     */
+    private void fanOut(Queue<Object> queue, Class<?> ownerType, Object owner, Set<Object> readOnlyOwners,
+                        boolean persisting) {
+        Set<Object> queued = Sets.newIdentityHashSet();
+        queued.addAll(queue);
+        Map<Class<?>, List<Object>> madeByType = Maps.newLinkedHashMap();
+        for (FanOut.Branch branch : fanOut.branchesOf(ownerType)) {
+            Class<?> childType = branch.getChildType();
+            Iterable<EntityClass> childDependencies = scan(childType);
+            for (int i = 0; i < branch.getCount(); i++) {
+                // the owner is the latest of its type in value holder so children will reference it
+                Queue<Object> made = getRequiredEntitiesFor(childType, childDependencies, readOnlyOwners, persisting);
+                branch.addChild(owner, ClassUtil.findEntity(made, childType));
+                for (Object entity : made) {
+                    if (queued.add(entity)) {
+                        List<Object> sameType = madeByType.get(entity.getClass());
+                        if (sameType == null) {
+                            sameType = Lists.newArrayList();
+                            madeByType.put(entity.getClass(), sameType);
+                        }
+                        sameType.add(entity);
+                    }
+                }
+            }
+        }
+        for (List<Object> sameType : madeByType.values()) {
+            queue.addAll(sameType);
+        }
+    }
+
+    /**
+     * @param type
+     *         depending entity type
+     * @return entity whose one to many side will be populated with made entities
+     */
+    Optional<?> tryGetOneToManyOwner(Class<?> type) {
+        return valueHolder.tryGet(type);
+    }
+
     private void reuseOrMakeNew(Queue<Object> queue, EntityClass entityClass) {
         Optional existing = valueHolder.tryGet(entityClass.getType());
         if (!entityClass.isRequireNewInstance() && existing.isPresent()) {
+            listener.entityReused(entityClass.getType());
             queue.offer(existing.get());
         } else {
-            Serializable entity = new BeanMaker<Serializable>(entityClass.getType(), context).value();
-            context.getBeanValueHolder().putIfNotNull(entityClass.getType(), entity);
-            queue.offer(entity);
+            queue.offer(makeNew(entityClass.getType()));
         }
     }
 
-    private static void persistInOrder(EntityManager entityManager, Iterable<Object> queue) {
-        for (Object entity : queue) {
-            if (ClassUtil.isUnsaved(entity)) {
-                entityManager.persist(entity);
-            } else {
-                log.info("reused persisted entity: {}", entity);
-                //            entityManager.refresh(entity);
-                //            entityManager.merge(entity);
-            }
-        }
+    @SuppressWarnings("unchecked")
+    private Serializable makeNew(Class<?> type) {
+        Class<Serializable> entityType = (Class<Serializable>) type;
+        Serializable entity = new BeanMaker<Serializable>(entityType, context).value();
+        // wanted id has to be assigned before anything references the entity's id
+        fixedIds.assign(entity);
+        valueHolder.putIfNotNull(entityType, entity);
+        listener.entityMade(entityType);
+        return entity;
+    }
+
+    private static boolean isInverseSide(Settable element) {
+        OneToMany oneToMany = element.getAnnotation(OneToMany.class);
+        return oneToMany != null && !Strings.isNullOrEmpty(oneToMany.mappedBy());
     }
 
     private static void addManySideEntityIfExists(Object entity, Settable element, BeanValueHolder holder) {
@@ -142,6 +488,28 @@ class EntityMakerImpl implements EntityMaker {
         }
     }
 
+    private static class MadeSinceFlush {
+        // in made order
+        private final List<Object> entities = Lists.newArrayList();
+        private final Set<Object> seen = Sets.newIdentityHashSet();
+        private int calls;
+        private long estimatedBytes;
+
+        private void add(Object entity) {
+            if (seen.add(entity)) {
+                entities.add(entity);
+                estimatedBytes += FlushPolicy.estimateSize(entity.getClass());
+            }
+        }
+
+        private void clear() {
+            entities.clear();
+            seen.clear();
+            calls = 0;
+            estimatedBytes = 0;
+        }
+    }
+
     @RequiredArgsConstructor
     private static class NiceIterablePrinter {
         private static final String NEW_LINE = "\n";
@@ -150,10 +518,9 @@ class EntityMakerImpl implements EntityMaker {
 
         @Override
         public String toString() {
-            List<Object> entities = ImmutableList.copyOf(iterable);
             StringBuilder builder = new StringBuilder();
             builder.append(NEW_LINE);
-            for (Object entity : entities) {
+            for (Object entity : iterable) {
                 builder.append(THEN).append(entity);
                 builder.append(NEW_LINE);
             }
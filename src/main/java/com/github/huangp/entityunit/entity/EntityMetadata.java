@@ -0,0 +1,102 @@
+package com.github.huangp.entityunit.entity;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import java.util.List;
+
+/**
+ * Entry point of entity metadata caches.
+ * <p/>
+ * Metadata of entity classes (EntityClass) and the scanned dependencies of an entity class are cached per class and
+ * scan option. The caches are not bounded since they only grow with the entity model.
+ * Pre-warm them at start up so that making entities won't do reflection scans for class discovery.
+ * <pre>
+ * {@code
+ *
+ * EntityMetadata.preWarm(entityManagerFactory);
+ * }
+ * </pre>
+ *
+ * @author Patrick Huang
+ * @see EntityClass
+ */
+@Slf4j
+public final class EntityMetadata {
+    private EntityMetadata() {
+    }
+
+    /**
+     * Pre-warm metadata of all entity and embeddable classes known to the persistence unit.
+     *
+     * @param entityManagerFactory
+     *         entity manager factory
+     */
+    public static void preWarm(EntityManagerFactory entityManagerFactory) {
+        Metamodel metamodel = entityManagerFactory.getMetamodel();
+        List<Class> types = Lists.newArrayList();
+        for (ManagedType<?> managedType : Iterables.concat(metamodel.getEntities(), metamodel.getEmbeddables())) {
+            // dynamic (map) entity has no java type
+            if (managedType.getJavaType() != null) {
+                types.add(managedType.getJavaType());
+            }
+        }
+        preWarm(types);
+    }
+
+    /**
+     * Pre-warm metadata of given classes for all scan options.
+     *
+     * @param first
+     *         first class
+     * @param rest
+     *         rest of the classes
+     */
+    public static void preWarm(Class first, Class... rest) {
+        preWarm(ImmutableList.<Class>builder().add(first).add(rest).build());
+    }
+
+    /**
+     * Pre-warm metadata of given classes for all scan options.
+     * <p/>
+     * Entity classes will be scanned for their depending entities. Other classes (i.e. embeddable) will only have
+     * their elements resolved.
+     *
+     * @param types
+     *         entity or embeddable classes
+     */
+    public static void preWarm(Iterable<Class> types) {
+        for (ScanOption scanOption : ScanOption.values()) {
+            EntityClassScanner scanner = new EntityClassScanner(scanOption);
+            for (Class type : types) {
+                if (type.isAnnotationPresent(Entity.class)) {
+                    scanner.scan(type);
+                } else {
+                    EntityClass.from(type, scanOption);
+                }
+            }
+        }
+        log.debug("pre-warmed metadata cache size: {}", EntityClass.cacheSize());
+    }
+
+    /**
+     * @return statistics of EntityClass cache
+     */
+    public static CacheStats entityClassStats() {
+        return EntityClass.cacheStats();
+    }
+
+    /**
+     * @return statistics of scanned dependencies cache
+     */
+    public static CacheStats scanStats() {
+        return EntityClassScanner.cacheStats();
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.huangp.entityunit.entity;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Strategy for writing made entities to database.
+ *
+ * @author Patrick Huang
+ * @see JpaEntityPersister
+ * @see JdbcBatchPersister
+ */
+interface EntityPersister {
+
+    /**
+     * @param entityManager
+     *         entity manager
+     * @param entities
+     *         made or reused entities in persist order. Reused persisted entities are skipped.
+     */
+    void persist(EntityManager entityManager, Iterable<Object> entities);
+
+    /**
+     * Make sure persisted entities are in database before returning them to the caller.
+     *
+     * @param entityManager
+     *         entity manager
+     */
+    void write(EntityManager entityManager);
+
+    /**
+     * End of a makeAndPersistMany chunk. Entities in the chunk will no longer be reused.
+     *
+     * @param entityManager
+     *         entity manager
+     * @param chunk
+     *         entities persisted since last flush. Will be cleared.
+     */
+    void flush(EntityManager entityManager, List<Object> chunk);
+}
@@ -0,0 +1,306 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.jodah.typetools.TypeResolver;
+
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.OrderColumn;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Version;
+import java.lang.annotation.Annotation;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Table mapping of an entity class for inserting rows with JDBC.
+ * <p/>
+ * Table and column names come from the mapping annotations (Table, Column, JoinColumn, OrderColumn) or default to the
+ * entity and field/property names as they are. The JPA provider's naming strategy is not applied.
+ * <p/>
+ * Supported mappings:
+ * <pre>
+ * Basic fields/properties (Column name, Enumerated, Temporal).
+ * Id (generated or assigned) and Version.
+ * ManyToOne and owning OneToOne (JoinColumn name or default property_id column name).
+ * OneToMany with JoinColumn (collection or map values). Foreign key (and OrderColumn/IndexColumn) are written in
+ * the child row.
+ * </pre>
+ * Many to many join tables are written by JdbcBatchPersister (see JoinTableMapping). Element collection tables are not
+ * written. Entity inheritance and embedded types are not supported.
+ *
+ * @author Patrick Huang
+ * @see JdbcBatchPersister
+ */
+@ToString(of = "name")
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+class EntityTable {
+    private static final Cache<Class<?>, EntityTable> CACHE = CacheBuilder.newBuilder().build();
+
+    private final Class<?> type;
+    private final String name;
+    private final Settable id;
+    private final String idColumn;
+    private final boolean idGenerated;
+    private final Optional<Settable> version;
+    private final List<TableColumn> columns;
+    private final List<ChildLink> childLinks;
+
+    static EntityTable of(final Class<?> type) {
+        try {
+            return CACHE.get(type, new Callable<EntityTable>() {
+                @Override
+                public EntityTable call() throws Exception {
+                    return createTable(type);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static EntityTable createTable(Class<?> type) {
+        Class<?> superClass = type.getSuperclass();
+        while (superClass != null) {
+            Preconditions.checkState(!superClass.isAnnotationPresent(Entity.class),
+                    "entity inheritance is not supported: %s", type);
+            superClass = superClass.getSuperclass();
+        }
+        Settable id = null;
+        boolean idGenerated = false;
+        Optional<Settable> version = Optional.absent();
+        ImmutableList.Builder<TableColumn> columns = ImmutableList.builder();
+        ImmutableList.Builder<ChildLink> childLinks = ImmutableList.builder();
+
+        for (Settable settable : EntityClass.from(type).getElements()) {
+            Class<?> elementType = ClassUtil.getRawType(settable.getType());
+            Preconditions.checkState(!settable.isAnnotationPresent(Embedded.class)
+                    && !settable.isAnnotationPresent(EmbeddedId.class)
+                    && !elementType.isAnnotationPresent(Embeddable.class),
+                    "embedded type is not supported: %s", settable);
+
+            if (settable.isAnnotationPresent(OneToMany.class)) {
+                if (settable.isAnnotationPresent(JoinColumn.class)) {
+                    childLinks.add(ChildLink.from(settable));
+                }
+                continue;
+            }
+            if (settable.isAnnotationPresent(ManyToMany.class)
+                    || settable.isAnnotationPresent(ElementCollection.class)) {
+                continue;
+            }
+            if (settable.isAnnotationPresent(ManyToOne.class) || settable.isAnnotationPresent(OneToOne.class)) {
+                OneToOne oneToOne = settable.getAnnotation(OneToOne.class);
+                JoinColumn joinColumn = settable.getAnnotation(JoinColumn.class);
+                boolean inverseSide = oneToOne != null && !Strings.isNullOrEmpty(oneToOne.mappedBy());
+                if (!inverseSide && (joinColumn == null || joinColumn.insertable())) {
+                    columns.add(new TableColumn(joinColumnName(settable, joinColumn), settable, true));
+                }
+                continue;
+            }
+            if (ClassUtil.isCollection(settable.getType()) || ClassUtil.isMap(settable.getType())) {
+                continue;
+            }
+            Column column = settable.getAnnotation(Column.class);
+            if (column != null && !column.insertable()) {
+                continue;
+            }
+            if (settable.isAnnotationPresent(Id.class)) {
+                id = settable;
+                idGenerated = settable.isAnnotationPresent(GeneratedValue.class);
+            }
+            if (settable.isAnnotationPresent(Version.class)) {
+                version = Optional.of(settable);
+            }
+            columns.add(new TableColumn(columnName(settable), settable, false));
+        }
+        Preconditions.checkState(id != null, "can not find id of %s", type);
+        return new EntityTable(type, ClassUtil.getTableName(type), id, columnName(id), idGenerated, version,
+                columns.build(), childLinks.build());
+    }
+
+    static String columnName(Settable settable) {
+        Column column = settable.getAnnotation(Column.class);
+        if (column != null && !Strings.isNullOrEmpty(column.name())) {
+            return column.name();
+        }
+        return settable.getSimpleName();
+    }
+
+    private static String joinColumnName(Settable settable, JoinColumn joinColumn) {
+        if (joinColumn != null && !Strings.isNullOrEmpty(joinColumn.name())) {
+            return joinColumn.name();
+        }
+        // default join column name: property name _ referenced primary key column name
+        Class<?> targetType = targetEntity(settable);
+        for (Settable element : EntityClass.from(targetType).getElements()) {
+            if (element.isAnnotationPresent(Id.class)) {
+                return settable.getSimpleName() + "_" + columnName(element);
+            }
+        }
+        throw new IllegalStateException("can not find id of " + targetType);
+    }
+
+    private static Class<?> targetEntity(Settable settable) {
+        ManyToOne manyToOne = settable.getAnnotation(ManyToOne.class);
+        if (manyToOne != null && manyToOne.targetEntity() != void.class) {
+            return manyToOne.targetEntity();
+        }
+        OneToOne oneToOne = settable.getAnnotation(OneToOne.class);
+        if (oneToOne != null && oneToOne.targetEntity() != void.class) {
+            return oneToOne.targetEntity();
+        }
+        return ClassUtil.getRawType(settable.getType());
+    }
+
+    /**
+     * Column in this table.
+     */
+    @RequiredArgsConstructor
+    @Getter
+    @ToString(of = "name")
+    static class TableColumn {
+        private final String name;
+        private final Settable settable;
+        // foreign key to referenced entity
+        private final boolean reference;
+
+        /**
+         * @return entity type this foreign key column references
+         */
+        Class<?> referencedType() {
+            Preconditions.checkState(reference, "not a reference column: %s", this);
+            return targetEntity(settable);
+        }
+
+        Object valueIn(Object entity) {
+            Object value = settable.valueIn(entity);
+            if (value == null) {
+                return null;
+            }
+            if (reference) {
+                return ClassUtil.getIdentityField(value).valueIn(value);
+            }
+            return toJdbcValue(settable, value);
+        }
+
+        private static Object toJdbcValue(Settable settable, Object value) {
+            if (value instanceof Enum) {
+                Enumerated enumerated = settable.getAnnotation(Enumerated.class);
+                Enum enumValue = (Enum) value;
+                return enumerated != null && enumerated.value() == EnumType.STRING ? enumValue.name()
+                        : enumValue.ordinal();
+            }
+            if (value instanceof Calendar) {
+                value = ((Calendar) value).getTime();
+            }
+            if (value instanceof Date && !(value instanceof java.sql.Timestamp || value instanceof java.sql.Date
+                    || value instanceof java.sql.Time)) {
+                Temporal temporal = settable.getAnnotation(Temporal.class);
+                long time = ((Date) value).getTime();
+                if (temporal != null && temporal.value() == TemporalType.DATE) {
+                    return new java.sql.Date(time);
+                }
+                if (temporal != null && temporal.value() == TemporalType.TIME) {
+                    return new java.sql.Time(time);
+                }
+                return new java.sql.Timestamp(time);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * OneToMany with JoinColumn. Foreign key and list index are in the child table.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    @Getter
+    @ToString(of = {"childType", "joinColumn"})
+    static class ChildLink {
+        private final Settable settable;
+        private final Class<?> childType;
+        private final String joinColumn;
+        private final Optional<String> indexColumn;
+
+        private static ChildLink from(Settable settable) {
+            OneToMany oneToMany = settable.getAnnotation(OneToMany.class);
+            Class<?> childType;
+            if (oneToMany.targetEntity() != void.class) {
+                childType = oneToMany.targetEntity();
+            } else if (ClassUtil.isMap(settable.getType())) {
+                // children are map values
+                childType = TypeResolver.resolveRawArguments(settable.getType(), Map.class)[1];
+            } else {
+                childType = TypeResolver.resolveRawArgument(settable.getType(), Collection.class);
+            }
+            JoinColumn joinColumn = settable.getAnnotation(JoinColumn.class);
+            Preconditions.checkState(!Strings.isNullOrEmpty(joinColumn.name()),
+                    "join column name is required: %s", settable);
+            return new ChildLink(settable, childType, joinColumn.name(), indexColumn(settable));
+        }
+
+        private static Optional<String> indexColumn(Settable settable) {
+            OrderColumn orderColumn = settable.getAnnotation(OrderColumn.class);
+            if (orderColumn != null) {
+                return Optional.of(Strings.isNullOrEmpty(orderColumn.name()) ? settable.getSimpleName() + "_ORDER"
+                        : orderColumn.name());
+            }
+            // hibernate IndexColumn
+            for (Annotation annotation : settable.getAnnotations()) {
+                if (annotation.annotationType().getName().endsWith("IndexColumn")) {
+                    try {
+                        return Optional.of((String) annotation.annotationType().getMethod("name").invoke(annotation));
+                    } catch (Exception e) {
+                        throw Throwables.propagate(e);
+                    }
+                }
+            }
+            return Optional.absent();
+        }
+
+        /**
+         * @param parent
+         *         parent entity
+         * @return children in parent's collection (or values of parent's map). Empty if it is null.
+         */
+        Collection<?> childrenOf(Object parent) {
+            Object children = settable.valueIn(parent);
+            if (children instanceof Map) {
+                return ((Map<?, ?>) children).values();
+            }
+            return children == null ? ImmutableList.of() : (Collection<?>) children;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.jodah.typetools.TypeResolver;
+
+import javax.persistence.OneToMany;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Number of children to make for OneToMany collections of made entities.
+ * <p/>
+ * The entity asked for (by makeAndPersist, makeAndPersistMany or makeLazily) gets the given number of new children
+ * added to its collection in order (so list index columns follow the made order). Children are made the same way as
+ * EntityMaker#makeAndPersist makes them and fan out further as the asked for type of their own make. Depending
+ * entities made along the way (i.e. the document of a made text flow) do not fan out.
+ *
+ * @author Patrick Huang
+ * @see EntityMakerBuilder#fanOut(Class, String, int)
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+class FanOut {
+    static final FanOut NONE = new FanOut(ImmutableListMultimap.<Class<?>, Branch>of());
+
+    // owner type -> branches in specified order
+    private final ListMultimap<Class<?>, Branch> branches;
+
+    /**
+     * @param branches
+     *         branches. A later branch of the same collection replaces an earlier one.
+     * @return fan out of given branches
+     */
+    static FanOut of(Iterable<Branch> branches) {
+        Map<Settable, Branch> byCollection = Maps.newLinkedHashMap();
+        for (Branch branch : branches) {
+            byCollection.put(branch.collection, branch);
+        }
+        if (byCollection.isEmpty()) {
+            return NONE;
+        }
+        ImmutableListMultimap.Builder<Class<?>, Branch> builder = ImmutableListMultimap.builder();
+        for (Branch branch : byCollection.values()) {
+            builder.put(branch.ownerType, branch);
+        }
+        return new FanOut(builder.build());
+    }
+
+    /**
+     * @param ownerType
+     *         owner entity type
+     * @param collectionName
+     *         OneToMany collection field/property name
+     * @param count
+     *         number of children per owner
+     * @return branch
+     * @throws IllegalArgumentException
+     *         if the owner has no such OneToMany collection or count is negative
+     */
+    static Branch branch(Class<?> ownerType, final String collectionName, int count) {
+        Preconditions.checkArgument(count >= 0, "count must not be negative: %s", count);
+        Optional<Settable> collection = Iterables.tryFind(EntityClass.from(ownerType).getContainingEntitiesElements(),
+                new Predicate<Settable>() {
+                    @Override
+                    public boolean apply(Settable input) {
+                        return input.getSimpleName().equals(collectionName);
+                    }
+                });
+        Preconditions.checkArgument(collection.isPresent() && ClassUtil.isCollection(collection.get().getType()),
+                "%s has no OneToMany collection named %s", ownerType, collectionName);
+        Settable settable = collection.get();
+        OneToMany oneToMany = settable.getAnnotation(OneToMany.class);
+        Class<?> childType = oneToMany.targetEntity() != void.class ? oneToMany.targetEntity()
+                : TypeResolver.resolveRawArgument(settable.getType(), Collection.class);
+        return new Branch(ownerType, settable, childType, count);
+    }
+
+    List<Branch> branchesOf(Class<?> ownerType) {
+        return branches.get(ownerType);
+    }
+
+    boolean isEmpty() {
+        return branches.isEmpty();
+    }
+
+    /**
+     * One OneToMany collection to fan out.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    @Getter
+    @ToString(of = {"collection", "count"})
+    static class Branch {
+        private final Class<?> ownerType;
+        private final Settable collection;
+        private final Class<?> childType;
+        private final int count;
+        // owner (weak identity keys) -> children known to be in owner's collection
+        private final Cache<Object, Set<Object>> knownChildren = CacheBuilder.newBuilder()
+                .weakKeys()
+                .build();
+
+        /**
+         * Add the child to owner's collection unless it's already added (i.e. by the many side back fill). Children
+         * already in the collection are only read once per owner.
+         *
+         * @param owner
+         *         owner entity
+         * @param child
+         *         made child entity
+         */
+        @SuppressWarnings("unchecked")
+        void addChild(Object owner, Object child) {
+            Collection<Object> children = collection.valueIn(owner);
+            Preconditions.checkState(children != null, "%s is not initialized", collection);
+            // made entities have no id yet so equals can not be trusted
+            Set<Object> known = knownChildren.getIfPresent(owner);
+            if (known == null) {
+                known = Sets.newIdentityHashSet();
+                knownChildren.put(owner, known);
+            }
+            if (known.size() < children.size()) {
+                // added by someone else since last time. Lists only grow at the end
+                Iterable<Object> unknown = children instanceof List
+                        ? ((List<Object>) children).subList(known.size(), children.size()) : children;
+                Iterables.addAll(known, unknown);
+            }
+            if (known.add(child)) {
+                children.add(child);
+            }
+        }
+    }
+}
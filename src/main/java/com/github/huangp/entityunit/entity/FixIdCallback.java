@@ -32,9 +32,11 @@ import static com.github.huangp.entityunit.util.ClassUtil.findEntity;
  * again.
  * <p/>
  * There is no guarantee referential constraints are defined with "on update cascade", therefore <b>this callback only
- * supports entity with no association.</b>
+ * supports entity with no association.</b> EntityMakerBuilder#fixIds assigns wanted ids before insert instead and
+ * works with associations (with JDBC batch insert).
  *
  * @author Patrick Huang
+ * @see EntityMakerBuilder#fixIds(Class, java.io.Serializable...)
  * @see <a href="http://stackoverflow.com/questions/734461/hibernate-alter-identifier-primary-key/2217064#2217064">stack overflow entry</a>
  */
 @RequiredArgsConstructor
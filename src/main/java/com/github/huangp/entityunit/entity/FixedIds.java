@@ -0,0 +1,101 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.google.common.primitives.Primitives;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Wanted identifiers of made entities.
+ * <p/>
+ * The first made entities of a type get the wanted ids in given order before they are inserted. Once an entity type
+ * runs out of wanted ids, its entities get generated ids as usual.
+ * <p/>
+ * Not thread safe.
+ *
+ * @author Patrick Huang
+ * @see EntityMakerBuilder#fixIds(Class, java.io.Serializable...)
+ */
+@ToString(of = "remaining")
+class FixedIds {
+    static final FixedIds NONE = new FixedIds(ImmutableMap.<Class<?>, Queue<Serializable>>of());
+
+    // entity type -> ids not yet assigned
+    private final Map<Class<?>, Queue<Serializable>> remaining;
+    // entities that got a wanted id but are not inserted yet
+    private final Cache<Object, Boolean> pending = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    private FixedIds(Map<Class<?>, Queue<Serializable>> remaining) {
+        this.remaining = remaining;
+    }
+
+    static FixedIds of(ListMultimap<Class<?>, Serializable> ids) {
+        if (ids.isEmpty()) {
+            return NONE;
+        }
+        Map<Class<?>, Queue<Serializable>> remaining = Maps.newHashMap();
+        for (Class<?> entityType : ids.keySet()) {
+            remaining.put(entityType, Queues.newArrayDeque(ids.get(entityType)));
+        }
+        return new FixedIds(remaining);
+    }
+
+    /**
+     * @param entityType
+     *         entity type
+     * @param id
+     *         wanted id
+     * @throws IllegalArgumentException
+     *         if the id does not match the entity's id type
+     */
+    static void checkIdType(Class<?> entityType, Serializable id) {
+        Settable idSettable = EntityTable.of(entityType).getId();
+        Class<?> idType = Primitives.wrap(ClassUtil.getRawType(idSettable.getType()));
+        Preconditions.checkArgument(idType.isInstance(id), "%s is not a valid id of %s", id, entityType);
+    }
+
+    boolean isEmpty() {
+        return remaining.isEmpty();
+    }
+
+    /**
+     * @param entity
+     *         just made entity
+     * @return true if the entity got a wanted id
+     */
+    boolean assign(Object entity) {
+        Queue<Serializable> ids = remaining.get(entity.getClass());
+        if (ids == null || ids.isEmpty()) {
+            return false;
+        }
+        ClassUtil.setValue(ClassUtil.getIdentityField(entity), entity, ids.poll());
+        pending.put(entity, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * @param entity
+     *         entity to insert
+     * @return true if the entity has a wanted id and is not inserted yet. It will return false afterwards.
+     */
+    boolean takePending(Object entity) {
+        if (pending.getIfPresent(entity) == null) {
+            return false;
+        }
+        pending.invalidate(entity);
+        return true;
+    }
+}
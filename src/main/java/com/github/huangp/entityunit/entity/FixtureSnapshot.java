@@ -0,0 +1,263 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.github.huangp.entityunit.util.HasAnnotationPredicate;
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot of the rows written for made entities.
+ * <p/>
+ * A Recorder passed as callback to makeAndPersist (or makeAndPersistMany) remembers the ids of every entity in the
+ * persisted queue. Taking the snapshot reads back the rows of exactly those entities, plus the join table rows of
+ * their owning many to many collections, and keeps them in memory. Restoring inserts the rows with JDBC batches,
+ * referenced tables first, which is much cheaper than making the same entities again for every test. Since rows are
+ * kept in memory they can be restored into another (i.e. freshly created) database with the same schema.
+ * <pre>
+ * {@code
+ *
+ * // once, i.e. in @BeforeClass
+ * FixtureSnapshot.Recorder recorder = FixtureSnapshot.recorder();
+ * maker.makeAndPersistMany(entityManager, LineItem.class, 5000, recorder);
+ * FixtureSnapshot snapshot = recorder.take(entityManager, connectionOf);
+ *
+ * // before each test
+ * EntityCleaner.truncateAll(entityManager, TruncateDialect.H2, LineItem.class, Category.class, Person.class);
+ * entityManager.getTransaction().begin();
+ * snapshot.restore(entityManager, connectionOf, TruncateDialect.H2);
+ * entityManager.getTransaction().commit();
+ * }
+ * </pre>
+ * Rows are restored into empty tables. After inserting, identity columns of generated ids (GenerationType IDENTITY
+ * or AUTO) are restarted after the highest restored id so that later inserts won't collide. Sequence and table
+ * generators are not reset. Element collection tables are not recorded. Tables are ordered by InsertOrder so recorded
+ * entity classes need a mapping EntityTable supports (no entity inheritance or embedded types).
+ *
+ * @author Patrick Huang
+ * @see EntityCleaner#truncateAll(javax.persistence.EntityManager, TruncateDialect, Class[])
+ */
+@Slf4j
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class FixtureSnapshot {
+    private static final int BATCH_SIZE = 1000;
+    private static final Joiner COMMA = Joiner.on(", ");
+
+    // insert statement -> rows. Referenced tables first, join tables last.
+    private final Map<String, List<Object[]>> rows;
+    // entity table -> identity column of generated id
+    private final Map<String, String> identityColumns;
+
+    /**
+     * @return callback that records persisted entities
+     */
+    public static Recorder recorder() {
+        return new Recorder();
+    }
+
+    /**
+     * @return number of recorded rows
+     */
+    public int size() {
+        int size = 0;
+        for (List<Object[]> tableRows : rows.values()) {
+            size += tableRows.size();
+        }
+        return size;
+    }
+
+    /**
+     * Insert the snapshot rows into empty tables and restart identity columns after them.
+     * <p/>
+     * The persistence context will be cleared since managed entities may no longer match database records.
+     *
+     * @param entityManager
+     *         entity manager
+     * @param connectionOf
+     *         function to get the JDBC connection of an entity manager
+     * @param dialect
+     *         database specific way of restarting identity columns
+     */
+    public void restore(EntityManager entityManager, Function<EntityManager, Connection> connectionOf,
+                        TruncateDialect dialect) {
+        entityManager.flush();
+        Connection connection = connectionOf.apply(entityManager);
+        try {
+            for (Map.Entry<String, List<Object[]>> entry : rows.entrySet()) {
+                for (List<Object[]> batch : Lists.partition(entry.getValue(), BATCH_SIZE)) {
+                    JdbcBatchPersister.executeBatch(connection, entry.getKey(), batch);
+                }
+            }
+        } catch (SQLException e) {
+            throw Throwables.propagate(e);
+        }
+        for (Map.Entry<String, String> entry : identityColumns.entrySet()) {
+            String sqlString = "SELECT MAX(" + entry.getValue() + ") FROM " + entry.getKey();
+            Object max = entityManager.createNativeQuery(sqlString).getSingleResult();
+            long next = max == null ? 1 : ((Number) max).longValue() + 1;
+            dialect.restartIdentity(entityManager, entry.getKey(), entry.getValue(), next);
+        }
+        entityManager.clear();
+    }
+
+    /**
+     * Callback that records ids of persisted entities (made or reused) so that their rows can be taken as a snapshot.
+     */
+    public static class Recorder extends AbstractNoOpCallback {
+        // entity type -> ids in persist order
+        private final SetMultimap<Class<?>, Object> ids = LinkedHashMultimap.create();
+
+        private Recorder() {
+        }
+
+        @Override
+        public Iterable<Object> afterPersist(EntityManager entityManager, Iterable<Object> persisted) {
+            for (Object entity : persisted) {
+                Object id = ClassUtil.getIdentityField(entity).valueIn(entity);
+                Preconditions.checkState(id != null, "entity is not persisted: %s", entity);
+                ids.put(entity.getClass(), id);
+            }
+            return persisted;
+        }
+
+        /**
+         * Read back rows of recorded entities. The entity manager is flushed first.
+         *
+         * @param entityManager
+         *         entity manager
+         * @param connectionOf
+         *         function to get the JDBC connection of an entity manager
+         * @return snapshot of recorded rows
+         * @throws IllegalStateException
+         *         if recorded entity classes reference each other in a cycle or their mapping is not supported
+         */
+        public FixtureSnapshot take(EntityManager entityManager, Function<EntityManager, Connection> connectionOf) {
+            entityManager.flush();
+            Connection connection = connectionOf.apply(entityManager);
+            Class[] entityTypes = ids.keySet().toArray(new Class[ids.keySet().size()]);
+            Map<String, Set<List<Object>>> tableRows = Maps.newLinkedHashMap();
+            Map<String, String> identityColumns = Maps.newLinkedHashMap();
+            try {
+                // referenced tables first
+                for (Class entityType : InsertOrder.of(entityTypes)) {
+                    String table = ClassUtil.getTableName(entityType);
+                    Settable id = Iterables.find(EntityClass.from(entityType).getElements(),
+                            HasAnnotationPredicate.has(Id.class));
+                    String idColumn = EntityTable.columnName(id);
+                    select(connection, table, idColumn, ids.get(entityType), tableRows);
+                    if (isIdentity(id)) {
+                        identityColumns.put(table, idColumn);
+                    }
+                }
+                for (Class entityType : entityTypes) {
+                    for (JoinTableMapping joinTable : JoinTableMapping.owningSidesOf(entityType)) {
+                        select(connection, joinTable.getName(), joinTable.getOwnerColumn(), ids.get(entityType),
+                                tableRows);
+                    }
+                }
+            } catch (SQLException e) {
+                throw Throwables.propagate(e);
+            }
+
+            ImmutableMap.Builder<String, List<Object[]>> rows = ImmutableMap.builder();
+            for (Map.Entry<String, Set<List<Object>>> entry : tableRows.entrySet()) {
+                ImmutableList.Builder<Object[]> values = ImmutableList.builder();
+                for (List<Object> row : entry.getValue()) {
+                    values.add(row.toArray());
+                }
+                rows.put(entry.getKey(), values.build());
+            }
+            FixtureSnapshot snapshot = new FixtureSnapshot(rows.build(), ImmutableMap.copyOf(identityColumns));
+            log.debug("took snapshot of {} rows", snapshot.size());
+            return snapshot;
+        }
+
+        private static boolean isIdentity(Settable id) {
+            GeneratedValue generatedValue = id.getAnnotation(GeneratedValue.class);
+            return generatedValue != null && (generatedValue.strategy() == GenerationType.IDENTITY
+                    || generatedValue.strategy() == GenerationType.AUTO);
+        }
+
+        // a row may be selected twice (i.e. join table owned by both sides) so rows are kept in sets
+        private static void select(Connection connection, String table, String column, Collection<Object> keys,
+                                   Map<String, Set<List<Object>>> tableRows) throws SQLException {
+            for (List<Object> batch : Iterables.partition(keys, BATCH_SIZE)) {
+                String sql = "SELECT * FROM " + table + " WHERE " + column + " IN ("
+                        + COMMA.join(Collections.nCopies(batch.size(), "?")) + ")";
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setObject(i + 1, batch.get(i));
+                    }
+                    ResultSet resultSet = statement.executeQuery();
+                    ResultSetMetaData metaData = resultSet.getMetaData();
+                    List<String> columns = Lists.newArrayListWithCapacity(metaData.getColumnCount());
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        columns.add(metaData.getColumnName(i));
+                    }
+                    String insertSql = "INSERT INTO " + table + " (" + COMMA.join(columns) + ") VALUES ("
+                            + COMMA.join(Collections.nCopies(columns.size(), "?")) + ")";
+                    Set<List<Object>> rows = tableRows.get(insertSql);
+                    if (rows == null) {
+                        rows = Sets.newLinkedHashSet();
+                        tableRows.put(insertSql, rows);
+                    }
+                    while (resultSet.next()) {
+                        Object[] row = new Object[columns.size()];
+                        for (int i = 0; i < row.length; i++) {
+                            row[i] = detach(resultSet.getObject(i + 1));
+                        }
+                        rows.add(Arrays.asList(row));
+                    }
+                    log.debug("execute [{}], selected rows: {}", sql, rows.size());
+                } finally {
+                    statement.close();
+                }
+            }
+        }
+
+        // LOBs are only valid while the result set is open
+        private static Object detach(Object value) throws SQLException {
+            if (value instanceof Clob) {
+                Clob clob = (Clob) value;
+                return clob.getSubString(1, (int) clob.length());
+            }
+            if (value instanceof Blob) {
+                Blob blob = (Blob) value;
+                return blob.getBytes(1, (int) blob.length());
+            }
+            return value;
+        }
+    }
+}
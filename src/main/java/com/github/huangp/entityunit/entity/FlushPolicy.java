@@ -0,0 +1,106 @@
+package com.github.huangp.entityunit.entity;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * When EntityMaker#makeAndPersist should flush the entity manager and detach made entities.
+ * <p/>
+ * Without flushing, every made entity stays in the persistence context and each flush has to dirty check all of
+ * them, so a long running fixture setup gets slower with every call. Entities still held by BeanValueHolder for reuse
+ * are detached as well and replaced with freshly loaded instances (one find per held entity), so that later calls
+ * reuse managed entities without holding on to everything the detached ones collected.
+ *
+ * @author Patrick Huang
+ * @see EntityMakerBuilder#flushPolicy(FlushPolicy)
+ */
+public abstract class FlushPolicy {
+    // rough size of an entity instance plus its persistence context entry
+    private static final long BYTES_PER_ENTITY = 200;
+    // rough size of an attribute value plus its loaded state snapshot
+    private static final long BYTES_PER_ATTRIBUTE = 48;
+
+    /**
+     * Never flush. Made entities stay managed until the entity manager is flushed and cleared by the caller.
+     * This is the default.
+     */
+    public static final FlushPolicy NEVER = new FlushPolicy() {
+        @Override
+        boolean shouldFlush(int calls, int entities, long estimatedBytes) {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "FlushPolicy.NEVER";
+        }
+    };
+
+    FlushPolicy() {
+    }
+
+    /**
+     * @param entities
+     *         number of made entities
+     * @return policy that flushes once given number of entities have been made since last flush
+     */
+    public static FlushPolicy everyEntities(int entities) {
+        Preconditions.checkArgument(entities > 0, "entities must be positive: %s", entities);
+        return new Threshold(entities, 0, 0);
+    }
+
+    /**
+     * @param calls
+     *         number of makeAndPersist calls
+     * @return policy that flushes every given number of makeAndPersist calls
+     */
+    public static FlushPolicy everyCalls(int calls) {
+        Preconditions.checkArgument(calls > 0, "calls must be positive: %s", calls);
+        return new Threshold(0, calls, 0);
+    }
+
+    /**
+     * The estimate is based on the number of attributes of made entities. It is not a measurement of the heap.
+     *
+     * @param bytes
+     *         estimated memory held by the persistence context
+     * @return policy that flushes once made entities are estimated to hold given bytes
+     */
+    public static FlushPolicy estimatedBytes(long bytes) {
+        Preconditions.checkArgument(bytes > 0, "bytes must be positive: %s", bytes);
+        return new Threshold(0, 0, bytes);
+    }
+
+    static long estimateSize(Class<?> entityType) {
+        return BYTES_PER_ENTITY + BYTES_PER_ATTRIBUTE * Iterables.size(EntityClass.from(entityType).getElements());
+    }
+
+    /**
+     * @param calls
+     *         makeAndPersist calls since last flush
+     * @param entities
+     *         made entities since last flush
+     * @param estimatedBytes
+     *         estimated size of made entities since last flush
+     * @return whether to flush now
+     */
+    abstract boolean shouldFlush(int calls, int entities, long estimatedBytes);
+
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    @ToString
+    private static class Threshold extends FlushPolicy {
+        private final int entities;
+        private final int calls;
+        private final long bytes;
+
+        @Override
+        boolean shouldFlush(int calls, int entities, long estimatedBytes) {
+            return (this.entities > 0 && entities >= this.entities)
+                    || (this.calls > 0 && calls >= this.calls)
+                    || (bytes > 0 && estimatedBytes >= bytes);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * Allocates ids of generated id entities in memory so that they are known before rows are written.
+ * <p/>
+ * Ids are handed out from contiguous blocks reserved per entity table. A block is reserved with one query, after that
+ * allocating is a counter increment. Ids reserved for rows inserted without the allocator (i.e. wanted ids) are
+ * remembered per table and skipped, whichever block they fall in. Allocated ids are not used by the JPA provider's
+ * own generator, so do not mix them with EntityManager.persist on the same tables.
+ * <p/>
+ * One allocator can be shared by several EntityMakers (and threads) to keep their ids apart.
+ *
+ * @author Patrick Huang
+ * @see EntityMakerBuilder#idAllocator(IdAllocator)
+ * @see JdbcBatchPersister
+ */
+@Slf4j
+public abstract class IdAllocator {
+    // table -> block ids are allocated from
+    private final Map<String, Block> blocks = Maps.newHashMap();
+    // table -> reserved ids not yet skipped by allocation
+    private final Map<String, NavigableSet<Long>> reservedIds = Maps.newHashMap();
+
+    IdAllocator() {
+    }
+
+    /**
+     * Allocates from max(id) + 1 of each table. The max is queried once per table. This is the default of
+     * EntityMakerBuilder#jdbcBatchInsert.
+     *
+     * @return allocator
+     */
+    public static IdAllocator fromMaxId() {
+        return new FromMaxId();
+    }
+
+    /**
+     * Hi/lo allocation. Each block is one value (hi) of a database sequence and contains ids from hi * blockSize to
+     * (hi + 1) * blockSize - 1.
+     *
+     * @param nextValueQuery
+     *         native query returning next value of a sequence, i.e. "select next value for id_seq" for H2 or
+     *         "select nextval('id_seq')" for PostgreSQL
+     * @param blockSize
+     *         number of ids per sequence value
+     * @return allocator
+     */
+    public static IdAllocator fromSequence(String nextValueQuery, int blockSize) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(nextValueQuery), "next value query is required");
+        Preconditions.checkArgument(blockSize > 0, "block size must be positive: %s", blockSize);
+        return new FromSequence(nextValueQuery, blockSize);
+    }
+
+    /**
+     * @param entityManager
+     *         entity manager
+     * @param entityType
+     *         entity type with generated id
+     * @return next id for the entity type. The id is not used by anything else allocated by this allocator.
+     */
+    public Serializable nextId(EntityManager entityManager, Class<?> entityType) {
+        EntityTable table = EntityTable.of(entityType);
+        Preconditions.checkArgument(table.isIdGenerated(), "%s does not have generated id", entityType);
+        return toIdType(table.getId(), next(entityManager, table));
+    }
+
+    /**
+     * Assign next id to the entity if it does not have one yet.
+     *
+     * @param entityManager
+     *         entity manager
+     * @param entity
+     *         entity with generated id
+     * @return true if an id is assigned
+     */
+    public boolean assignId(EntityManager entityManager, Object entity) {
+        EntityTable table = EntityTable.of(entity.getClass());
+        if (table.getId().valueIn(entity) != null) {
+            return false;
+        }
+        ClassUtil.setValue(table.getId(), entity, nextId(entityManager, entity.getClass()));
+        return true;
+    }
+
+    private synchronized long next(EntityManager entityManager, EntityTable table) {
+        NavigableSet<Long> reserved = reservedIdsOf(table);
+        while (true) {
+            Block block = blocks.get(table.getName());
+            if (block == null || block.next >= block.end) {
+                block = reserveBlock(entityManager, table);
+                log.debug("reserved ids [{}, {}) for {}", block.next, block.end, table);
+                blocks.put(table.getName(), block);
+                // blocks only move forward so ids below the new block won't come up again
+                reserved.headSet(block.next).clear();
+            }
+            long id = block.next++;
+            if (!reserved.remove(id)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Make sure an id inserted without this allocator won't be allocated later.
+     *
+     * @param entityManager
+     *         entity manager
+     * @param table
+     *         entity table
+     * @param id
+     *         id in use
+     */
+    synchronized void reserve(EntityManager entityManager, EntityTable table, long id) {
+        Block block = blocks.get(table.getName());
+        if (block == null) {
+            block = reserveBlock(entityManager, table);
+            blocks.put(table.getName(), block);
+        }
+        if (id >= block.next && id < block.end) {
+            // generated ids continue after it
+            block.next = id + 1;
+        } else if (id >= block.end) {
+            // a later block may contain it
+            reservedIdsOf(table).add(id);
+        }
+    }
+
+    private NavigableSet<Long> reservedIdsOf(EntityTable table) {
+        NavigableSet<Long> reserved = reservedIds.get(table.getName());
+        if (reserved == null) {
+            reserved = Sets.newTreeSet();
+            reservedIds.put(table.getName(), reserved);
+        }
+        return reserved;
+    }
+
+    abstract Block reserveBlock(EntityManager entityManager, EntityTable table);
+
+    static Serializable toIdType(Settable id, long value) {
+        Class<?> idType = ClassUtil.getRawType(id.getType());
+        if (idType == Integer.class || idType == int.class) {
+            return (int) value;
+        }
+        if (idType == Short.class || idType == short.class) {
+            return (short) value;
+        }
+        Preconditions.checkState(idType == Long.class || idType == long.class, "unsupported id type: %s", id);
+        return value;
+    }
+
+    private static long querySingleNumber(EntityManager entityManager, String sqlString) {
+        Object result = entityManager.createNativeQuery(sqlString).getSingleResult();
+        log.debug("[{}] returns {}", sqlString, result);
+        return result == null ? 0 : ((Number) result).longValue();
+    }
+
+    /**
+     * Ids from next (inclusive) to end (exclusive).
+     */
+    static class Block {
+        private long next;
+        private final long end;
+
+        Block(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+    }
+
+    private static class FromMaxId extends IdAllocator {
+        @Override
+        Block reserveBlock(EntityManager entityManager, EntityTable table) {
+            String sqlString = "SELECT MAX(" + table.getIdColumn() + ") FROM " + table.getName();
+            return new Block(querySingleNumber(entityManager, sqlString) + 1, Long.MAX_VALUE);
+        }
+
+        @Override
+        public String toString() {
+            return "IdAllocator.fromMaxId()";
+        }
+    }
+
+    private static class FromSequence extends IdAllocator {
+        private final String nextValueQuery;
+        private final int blockSize;
+
+        private FromSequence(String nextValueQuery, int blockSize) {
+            this.nextValueQuery = nextValueQuery;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        Block reserveBlock(EntityManager entityManager, EntityTable table) {
+            long hi = querySingleNumber(entityManager, nextValueQuery);
+            return new Block(hi * blockSize, (hi + 1) * blockSize);
+        }
+
+        @Override
+        public String toString() {
+            return "IdAllocator.fromSequence(" + nextValueQuery + ", " + blockSize + ")";
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.huangp.entityunit.entity;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Order of inserting rows of a set of entity classes.
+ * <p/>
+ * Entity classes are sorted topologically so that referenced tables come before tables holding foreign keys to them.
+ * Foreign keys are the reference columns of EntityTable (ManyToOne and owning OneToOne) and the join columns of
+ * OneToMany with JoinColumn, which are in the child table. DeletePlan does not see the latter so its reversed order
+ * can not be used for inserting.
+ *
+ * @author Patrick Huang
+ * @see JdbcBatchPersister
+ * @see FixtureSnapshot
+ */
+@Slf4j
+class InsertOrder {
+    private static final Cache<Set<Class>, List<Class>> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(100)
+            .build();
+
+    private InsertOrder() {
+    }
+
+    /**
+     * @param entityClasses
+     *         entity classes in any order
+     * @return entity classes with referenced ones first
+     * @throws IllegalStateException
+     *         if entity classes reference each other in a cycle
+     */
+    static List<Class> of(Class... entityClasses) {
+        final Set<Class> entityTypes = ImmutableSet.copyOf(entityClasses);
+        try {
+            return CACHE.get(entityTypes, new Callable<List<Class>>() {
+                @Override
+                public List<Class> call() throws Exception {
+                    return createOrder(entityTypes);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static List<Class> createOrder(Set<Class> entityTypes) {
+        // entity type -> referenced types
+        SetMultimap<Class, Class> references = LinkedHashMultimap.create();
+        for (Class entityType : entityTypes) {
+            EntityTable table = EntityTable.of(entityType);
+            for (EntityTable.TableColumn column : table.getColumns()) {
+                if (!column.isReference()) {
+                    continue;
+                }
+                for (Class candidate : entityTypes) {
+                    if (candidate != entityType && column.referencedType().isAssignableFrom(candidate)) {
+                        references.put(entityType, candidate);
+                    }
+                }
+            }
+            // child rows hold the foreign key to this table
+            for (EntityTable.ChildLink link : table.getChildLinks()) {
+                for (Class candidate : entityTypes) {
+                    if (candidate != entityType && link.getChildType().isAssignableFrom(candidate)) {
+                        references.put(candidate, entityType);
+                    }
+                }
+            }
+        }
+        List<Class> sorted = DeletePlan.sort(entityTypes, references);
+        log.debug("insert order: {}", sorted);
+        return sorted;
+    }
+}
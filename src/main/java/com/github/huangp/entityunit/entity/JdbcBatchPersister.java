@@ -0,0 +1,255 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inserts made entities with JDBC batches instead of EntityManager.persist.
+ * <p/>
+ * Rows are buffered per entity class and written with one batch per table, referenced tables first (see
+ * InsertOrder). Join table rows of owning many to many collections are written after all entity tables (see
+ * JoinTableMapping for the supported mappings). Entities never become managed so they are not in the persistence
+ * context.
+ * <p/>
+ * Generated ids are assigned by IdAllocator (by default from max(id) + 1 of each table) before rows are buffered, so
+ * the made entities know their ids before rows are written. This does not advance the JPA provider's generator so do
+ * not mix it with EntityManager.persist on the same tables in one test. Entities with wanted ids (see FixedIds) are
+ * inserted with those ids and generated ids continue after them.
+ *
+ * @author Patrick Huang
+ * @see EntityMakerBuilder#jdbcBatchInsert(com.google.common.base.Function)
+ * @see EntityTable
+ * @see IdAllocator
+ */
+@Slf4j
+@RequiredArgsConstructor
+class JdbcBatchPersister implements EntityPersister {
+    private static final Joiner COMMA = Joiner.on(", ");
+
+    private final Function<EntityManager, Connection> connectionOf;
+    private final FixedIds fixedIds;
+    private final IdAllocator idAllocator;
+    // entity type -> insert statement -> rows
+    private final Map<Class, Map<String, List<Object[]>>> pendingRows = Maps.newLinkedHashMap();
+    // join table insert statement -> rows
+    private final Map<String, List<Object[]>> pendingJoinRows = Maps.newLinkedHashMap();
+    // parent -> number of children already linked for each of its one to many links
+    private final Cache<Object, int[]> linkedChildren = CacheBuilder.newBuilder().weakKeys().build();
+
+    @Override
+    public void persist(EntityManager entityManager, Iterable<Object> entities) {
+        List<Object> unsaved = Lists.newArrayList();
+        Set<Object> unsavedSet = Sets.newIdentityHashSet();
+        for (Object entity : entities) {
+            EntityTable table = EntityTable.of(entity.getClass());
+            Object id = table.getId().valueIn(entity);
+            if (id == null) {
+                Preconditions.checkState(table.isIdGenerated(), "id is not assigned: %s", entity);
+                idAllocator.assignId(entityManager, entity);
+                unsaved.add(entity);
+                unsavedSet.add(entity);
+            } else if (fixedIds.takePending(entity)) {
+                if (table.isIdGenerated() && id instanceof Number) {
+                    // generated ids won't collide with wanted id
+                    idAllocator.reserve(entityManager, table, ((Number) id).longValue());
+                }
+                unsaved.add(entity);
+                unsavedSet.add(entity);
+            } else {
+                log.debug("reused persisted entity: {}", entity);
+            }
+        }
+        Map<Object, List<ParentLink>> parentLinks = parentLinksOf(entities, unsavedSet);
+        for (Object entity : unsaved) {
+            addRow(EntityTable.of(entity.getClass()), entity, parentLinks);
+            addJoinRows(entity);
+        }
+    }
+
+    /**
+     * Unsaved child -> parents (and their one to many links) holding the child.
+     * <p/>
+     * A reused parent (i.e. category of every made line item) is in every call. Only children added to its list since
+     * the last call are looked at. Lists only grow at the end. Other collections are looked at again when they grow.
+     */
+    private Map<Object, List<ParentLink>> parentLinksOf(Iterable<Object> entities, Set<Object> unsaved) {
+        Map<Object, List<ParentLink>> parentLinks = Maps.newIdentityHashMap();
+        for (Object parent : entities) {
+            List<EntityTable.ChildLink> links = EntityTable.of(parent.getClass()).getChildLinks();
+            if (links.isEmpty()) {
+                continue;
+            }
+            int[] linked = linkedChildren.getIfPresent(parent);
+            if (linked == null) {
+                linked = new int[links.size()];
+                linkedChildren.put(parent, linked);
+            }
+            for (int i = 0; i < links.size(); i++) {
+                EntityTable.ChildLink link = links.get(i);
+                Collection<?> children = link.childrenOf(parent);
+                if (children.size() == linked[i]) {
+                    continue;
+                }
+                if (children instanceof List) {
+                    List<?> list = (List<?>) children;
+                    for (int index = Math.min(linked[i], list.size()); index < list.size(); index++) {
+                        addParentLink(parentLinks, unsaved, list.get(index), parent, link, index);
+                    }
+                } else {
+                    for (Object child : children) {
+                        addParentLink(parentLinks, unsaved, child, parent, link, 0);
+                    }
+                }
+                linked[i] = children.size();
+            }
+        }
+        return parentLinks;
+    }
+
+    private static void addParentLink(Map<Object, List<ParentLink>> parentLinks, Set<Object> unsaved, Object child,
+                                      Object parent, EntityTable.ChildLink link, int index) {
+        if (!unsaved.contains(child) || !link.getChildType().isInstance(child)) {
+            return;
+        }
+        List<ParentLink> links = parentLinks.get(child);
+        if (links == null) {
+            links = Lists.newArrayListWithCapacity(1);
+            parentLinks.put(child, links);
+        }
+        links.add(new ParentLink(parent, link, index));
+    }
+
+    private void addRow(EntityTable table, Object entity, Map<Object, List<ParentLink>> parentLinks) {
+        if (table.getVersion().isPresent() && table.getVersion().get().valueIn(entity) == null) {
+            Settable version = table.getVersion().get();
+            ClassUtil.setValue(version, entity, IdAllocator.toIdType(version, 0));
+        }
+        List<String> columns = Lists.newArrayList();
+        List<Object> values = Lists.newArrayList();
+        for (EntityTable.TableColumn column : table.getColumns()) {
+            columns.add(column.getName());
+            values.add(column.valueIn(entity));
+        }
+        // owning one to many side puts foreign key in this table
+        List<ParentLink> links = parentLinks.get(entity);
+        for (ParentLink parentLink : links == null ? ImmutableList.<ParentLink>of() : links) {
+            EntityTable.ChildLink link = parentLink.link;
+            columns.add(link.getJoinColumn());
+            values.add(ClassUtil.getIdentityField(parentLink.parent).valueIn(parentLink.parent));
+            if (link.getIndexColumn().isPresent()) {
+                columns.add(link.getIndexColumn().get());
+                values.add(parentLink.index);
+            }
+        }
+        String sql = "INSERT INTO " + table.getName() + " (" + COMMA.join(columns) + ") VALUES ("
+                + COMMA.join(Collections.nCopies(columns.size(), "?")) + ")";
+
+        Map<String, List<Object[]>> statements = pendingRows.get(table.getType());
+        if (statements == null) {
+            statements = Maps.newLinkedHashMap();
+            pendingRows.put(table.getType(), statements);
+        }
+        rowsOf(statements, sql).add(values.toArray());
+    }
+
+    private void addJoinRows(Object entity) {
+        for (JoinTableMapping joinTable : JoinTableMapping.owningSidesOf(entity.getClass())) {
+            Collection<?> targets = joinTable.getCollection().valueIn(entity);
+            if (targets == null || targets.isEmpty()) {
+                continue;
+            }
+            Object id = ClassUtil.getIdentityField(entity).valueIn(entity);
+            List<Object[]> rows = rowsOf(pendingJoinRows, joinTable.insertSql());
+            for (Object target : targets) {
+                Object targetId = ClassUtil.getIdentityField(target).valueIn(target);
+                Preconditions.checkState(targetId != null, "%s references unsaved entity: %s", entity, target);
+                rows.add(new Object[]{ id, targetId });
+            }
+        }
+    }
+
+    private static List<Object[]> rowsOf(Map<String, List<Object[]>> statements, String sql) {
+        List<Object[]> rows = statements.get(sql);
+        if (rows == null) {
+            rows = Lists.newArrayList();
+            statements.put(sql, rows);
+        }
+        return rows;
+    }
+
+    @Override
+    public void write(EntityManager entityManager) {
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        Class[] entityTypes = pendingRows.keySet().toArray(new Class[pendingRows.size()]);
+        Connection connection = connectionOf.apply(entityManager);
+        try {
+            for (Class entityType : InsertOrder.of(entityTypes)) {
+                for (Map.Entry<String, List<Object[]>> entry : pendingRows.get(entityType).entrySet()) {
+                    executeBatch(connection, entry.getKey(), entry.getValue());
+                }
+            }
+            for (Map.Entry<String, List<Object[]>> entry : pendingJoinRows.entrySet()) {
+                executeBatch(connection, entry.getKey(), entry.getValue());
+            }
+        } catch (SQLException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            pendingRows.clear();
+            pendingJoinRows.clear();
+        }
+    }
+
+    static void executeBatch(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            log.debug("execute [{}] with {} rows", sql, rows.size());
+        } finally {
+            statement.close();
+        }
+    }
+
+    @Override
+    public void flush(EntityManager entityManager, List<Object> chunk) {
+        write(entityManager);
+        chunk.clear();
+    }
+
+    @RequiredArgsConstructor
+    private static class ParentLink {
+        private final Object parent;
+        private final EntityTable.ChildLink link;
+        // position in parent's collection (0 for unordered collections)
+        private final int index;
+    }
+}
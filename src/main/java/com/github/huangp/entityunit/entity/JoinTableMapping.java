@@ -0,0 +1,151 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.jodah.typetools.TypeResolver;
+
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Join table of the owning side of a many to many association.
+ * <p/>
+ * Table and column names come from the JoinTable annotation (single join column on each side). Collections whose
+ * JoinTable relies on defaulted names are not supported: JdbcBatchPersister skips them with a warning and
+ * ManyToManyWiring rejects them.
+ *
+ * @author Patrick Huang
+ * @see ManyToManyWiring
+ * @see JdbcBatchPersister
+ */
+@Slf4j
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@ToString(of = {"name", "ownerColumn", "targetColumn"})
+class JoinTableMapping {
+    private static final Cache<Class<?>, List<JoinTableMapping>> CACHE = CacheBuilder.newBuilder().build();
+
+    private final Settable collection;
+    private final Class<?> ownerType;
+    private final Class<?> targetType;
+    private final String name;
+    private final String ownerColumn;
+    private final String targetColumn;
+
+    /**
+     * @param entityType
+     *         entity type
+     * @return supported join tables owned by the entity type
+     */
+    static List<JoinTableMapping> owningSidesOf(final Class<?> entityType) {
+        try {
+            return CACHE.get(entityType, new Callable<List<JoinTableMapping>>() {
+                @Override
+                public List<JoinTableMapping> call() throws Exception {
+                    ImmutableList.Builder<JoinTableMapping> mappings = ImmutableList.builder();
+                    for (Settable settable : EntityClass.from(entityType).getManyToMany()) {
+                        if (isSupported(settable)) {
+                            mappings.add(create(entityType, settable));
+                        } else {
+                            log.warn("join table rows of {} can not be written: JoinTable name and single named join"
+                                    + " columns are required", settable);
+                        }
+                    }
+                    return mappings.build();
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * @param entityType
+     *         entity type
+     * @param collectionName
+     *         many to many collection name of either side
+     * @return join table of the association. Owner of the mapping may be the other side.
+     * @throws IllegalArgumentException
+     *         if there is no such many to many collection or its join table is not supported
+     */
+    static JoinTableMapping of(Class<?> entityType, String collectionName) {
+        Optional<Settable> collection = findElement(entityType, collectionName);
+        Preconditions.checkArgument(collection.isPresent() && collection.get().isAnnotationPresent(ManyToMany.class),
+                "%s has no ManyToMany collection named %s", entityType, collectionName);
+        ManyToMany manyToMany = collection.get().getAnnotation(ManyToMany.class);
+        if (Strings.isNullOrEmpty(manyToMany.mappedBy())) {
+            return ownedBy(entityType, collection.get());
+        }
+        Class<?> ownerType = targetType(collection.get());
+        Optional<Settable> owningSide = findElement(ownerType, manyToMany.mappedBy());
+        Preconditions.checkArgument(owningSide.isPresent(), "can not find owning side of %s", collection.get());
+        return ownedBy(ownerType, owningSide.get());
+    }
+
+    private static JoinTableMapping ownedBy(Class<?> ownerType, Settable collection) {
+        for (JoinTableMapping mapping : owningSidesOf(ownerType)) {
+            if (mapping.collection == collection) {
+                return mapping;
+            }
+        }
+        throw new IllegalArgumentException("JoinTable with name and single named join columns is required on "
+                + collection);
+    }
+
+    private static Optional<Settable> findElement(Class<?> entityType, final String name) {
+        return Iterables.tryFind(EntityClass.from(entityType).getElements(), new Predicate<Settable>() {
+            @Override
+            public boolean apply(Settable input) {
+                return input.getSimpleName().equals(name);
+            }
+        });
+    }
+
+    // defaulted names depend on the JPA provider's naming strategy
+    private static boolean isSupported(Settable collection) {
+        JoinTable joinTable = collection.getAnnotation(JoinTable.class);
+        return joinTable != null && !Strings.isNullOrEmpty(joinTable.name())
+                && joinTable.joinColumns().length == 1 && hasName(joinTable.joinColumns()[0])
+                && joinTable.inverseJoinColumns().length == 1 && hasName(joinTable.inverseJoinColumns()[0]);
+    }
+
+    private static boolean hasName(JoinColumn joinColumn) {
+        return !Strings.isNullOrEmpty(joinColumn.name());
+    }
+
+    private static JoinTableMapping create(Class<?> ownerType, Settable collection) {
+        JoinTable joinTable = collection.getAnnotation(JoinTable.class);
+        return new JoinTableMapping(collection, ownerType, targetType(collection), joinTable.name(),
+                joinTable.joinColumns()[0].name(), joinTable.inverseJoinColumns()[0].name());
+    }
+
+    private static Class<?> targetType(Settable collection) {
+        ManyToMany manyToMany = collection.getAnnotation(ManyToMany.class);
+        if (manyToMany.targetEntity() != void.class) {
+            return manyToMany.targetEntity();
+        }
+        return TypeResolver.resolveRawArgument(collection.getType(), Collection.class);
+    }
+
+    String insertSql() {
+        return "INSERT INTO " + name + " (" + ownerColumn + ", " + targetColumn + ") VALUES (?, ?)";
+    }
+}
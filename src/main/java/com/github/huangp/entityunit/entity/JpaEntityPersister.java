@@ -0,0 +1,48 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Persists entities through EntityManager. This is the default.
+ *
+ * @author Patrick Huang
+ */
+@Slf4j
+enum JpaEntityPersister implements EntityPersister {
+    PERSISTER;
+
+    @Override
+    public void persist(EntityManager entityManager, Iterable<Object> entities) {
+        for (Object entity : entities) {
+            if (ClassUtil.isUnsaved(entity)) {
+                entityManager.persist(entity);
+            } else {
+                log.debug("reused persisted entity: {}", entity);
+                //            entityManager.refresh(entity);
+                //            entityManager.merge(entity);
+            }
+        }
+    }
+
+    @Override
+    public void write(EntityManager entityManager) {
+        // persisted entities are managed and will be flushed by entity manager
+    }
+
+    @Override
+    public void flush(EntityManager entityManager, List<Object> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        log.debug("flush and detach {} entities", chunk.size());
+        entityManager.flush();
+        for (Object entity : chunk) {
+            entityManager.detach(entity);
+        }
+        chunk.clear();
+    }
+}
@@ -2,18 +2,40 @@ package com.github.huangp.entityunit.entity;
 
 import com.github.huangp.entityunit.holder.BeanValueHolder;
 import com.github.huangp.entityunit.maker.PreferredValueMakersRegistry;
+import com.github.huangp.entityunit.maker.ValueGenerator;
+import com.github.huangp.entityunit.metrics.AbstractNoOpMakeListener;
+import com.github.huangp.entityunit.metrics.MakeListener;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 /**
- * At the moment BeanValueHolder and PreferredValueMakersRegistry are the context.
+ * At the moment BeanValueHolder, PreferredValueMakersRegistry, ValueGenerator and MakeListener are the context.
  *
  * @author Patrick Huang
  */
-@RequiredArgsConstructor
 @Getter
 public class MakeContext {
     private final BeanValueHolder beanValueHolder;
     private final PreferredValueMakersRegistry preferredValueMakers;
+    private final ValueGenerator valueGenerator;
+    private final MakeListener listener;
+    // false for the no op listener so that makers can skip timing and reporting values nobody listens to
+    private final boolean listening;
 
+    public MakeContext(BeanValueHolder beanValueHolder, PreferredValueMakersRegistry preferredValueMakers,
+                       ValueGenerator valueGenerator, MakeListener listener) {
+        this.beanValueHolder = beanValueHolder;
+        this.preferredValueMakers = preferredValueMakers;
+        this.valueGenerator = valueGenerator;
+        this.listener = listener;
+        listening = listener != AbstractNoOpMakeListener.NO_OP_LISTENER;
+    }
+
+    public MakeContext(BeanValueHolder beanValueHolder, PreferredValueMakersRegistry preferredValueMakers) {
+        this(beanValueHolder, preferredValueMakers, ValueGenerator.random());
+    }
+
+    public MakeContext(BeanValueHolder beanValueHolder, PreferredValueMakersRegistry preferredValueMakers,
+                       ValueGenerator valueGenerator) {
+        this(beanValueHolder, preferredValueMakers, valueGenerator, AbstractNoOpMakeListener.NO_OP_LISTENER);
+    }
 }
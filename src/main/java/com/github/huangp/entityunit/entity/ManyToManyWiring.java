@@ -0,0 +1,166 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire many to many associations between persisted entities by inserting join table rows with JDBC batches.
+ * <p/>
+ * Unlike WireManyToManyCallback which wires one object per make call and leaves it to the entity manager to insert
+ * collection rows one by one, this wires whole sets of entities at once.
+ * <pre>
+ * {@code
+ *
+ * ManyToManyWiring wiring = ManyToManyWiring.of(HAccount.class, "roles", connectionOf);
+ * // every account gets 20% of the roles
+ * wiring.wire(entityManager, accounts, roles, 0.2);
+ * // or explicit pairs of account -> role
+ * wiring.wire(entityManager, ImmutableMultimap.of(admin, adminRole, translator, translatorRole));
+ * }
+ * </pre>
+ * The collection can be either side of the association. Entity collections in memory are not changed, so clear the
+ * entity manager (or refresh the entities) to see the wired associations.
+ *
+ * @author Patrick Huang
+ * @see WireManyToManyCallback
+ * @see EntityMakerBuilder#jdbcBatchInsert(com.google.common.base.Function)
+ */
+@Slf4j
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ManyToManyWiring {
+    private static final int BATCH_SIZE = 1000;
+
+    private final JoinTableMapping joinTable;
+    // given collection is the inverse (mappedBy) side
+    private final boolean inverse;
+    private final Function<EntityManager, Connection> connectionOf;
+
+    /**
+     * @param entityType
+     *         entity type
+     * @param collectionName
+     *         ManyToMany collection field or property name (owning or inverse side)
+     * @param connectionOf
+     *         function to get the JDBC connection of an entity manager
+     * @return wiring of the association
+     * @throws IllegalArgumentException
+     *         if there is no such many to many collection or the owning side has no JoinTable with name and
+     *         single named join columns
+     */
+    public static ManyToManyWiring of(Class<?> entityType, String collectionName,
+                                      Function<EntityManager, Connection> connectionOf) {
+        JoinTableMapping joinTable = JoinTableMapping.of(entityType, collectionName);
+        return new ManyToManyWiring(joinTable, joinTable.getOwnerType() != entityType,
+                Preconditions.checkNotNull(connectionOf));
+    }
+
+    /**
+     * Wire each owner to a share of the targets. Targets are spread evenly: owner i gets targets starting from
+     * i * (density * number of targets), wrapping around.
+     *
+     * @param entityManager
+     *         entity manager
+     * @param owners
+     *         persisted entities of the collection side
+     * @param targets
+     *         persisted entities of the collection element side
+     * @param density
+     *         between 0 and 1. 1 wires every owner to every target.
+     * @return number of inserted rows
+     * @throws IllegalArgumentException
+     *         if an owner or target is not an entity of its side
+     */
+    public int wire(EntityManager entityManager, Iterable<?> owners, Iterable<?> targets, double density) {
+        Preconditions.checkArgument(density >= 0 && density <= 1, "density must be between 0 and 1: %s", density);
+        List<Object> targetIds = idsOf(elementSide(), targets);
+        int perOwner = (int) Math.round(density * targetIds.size());
+        List<Object[]> rows = Lists.newArrayList();
+        int i = 0;
+        for (Object owner : owners) {
+            Object ownerId = idOf(collectionSide(), owner);
+            int start = (int) ((long) i * perOwner % Math.max(targetIds.size(), 1));
+            for (int k = 0; k < perOwner; k++) {
+                rows.add(row(ownerId, targetIds.get((start + k) % targetIds.size())));
+            }
+            i++;
+        }
+        return insert(entityManager, rows);
+    }
+
+    /**
+     * @param entityManager
+     *         entity manager
+     * @param pairs
+     *         persisted entity of the collection side -> persisted entities of the element side
+     * @return number of inserted rows
+     * @throws IllegalArgumentException
+     *         if a key or value is not an entity of its side
+     */
+    public int wire(EntityManager entityManager, Multimap<?, ?> pairs) {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(pairs.size());
+        for (Map.Entry<?, ?> pair : pairs.entries()) {
+            rows.add(row(idOf(collectionSide(), pair.getKey()), idOf(elementSide(), pair.getValue())));
+        }
+        return insert(entityManager, rows);
+    }
+
+    private Class<?> collectionSide() {
+        return inverse ? joinTable.getTargetType() : joinTable.getOwnerType();
+    }
+
+    private Class<?> elementSide() {
+        return inverse ? joinTable.getOwnerType() : joinTable.getTargetType();
+    }
+
+    private Object[] row(Object id, Object elementId) {
+        return inverse ? new Object[]{ elementId, id } : new Object[]{ id, elementId };
+    }
+
+    private static List<Object> idsOf(Class<?> type, Iterable<?> entities) {
+        ImmutableList.Builder<Object> ids = ImmutableList.builder();
+        for (Object entity : entities) {
+            ids.add(idOf(type, entity));
+        }
+        return ids.build();
+    }
+
+    private static Object idOf(Class<?> type, Object entity) {
+        Preconditions.checkArgument(type.isInstance(entity), "%s is not a %s", entity, type);
+        Object id = ClassUtil.getIdentityField(entity).valueIn(entity);
+        Preconditions.checkArgument(id != null, "entity is not persisted: %s", entity);
+        return id;
+    }
+
+    private int insert(EntityManager entityManager, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        // entity rows have to be in database before join table rows
+        entityManager.flush();
+        String sql = joinTable.insertSql();
+        try {
+            Connection connection = connectionOf.apply(entityManager);
+            for (List<Object[]> batch : Lists.partition(rows, BATCH_SIZE)) {
+                JdbcBatchPersister.executeBatch(connection, sql, batch);
+            }
+        } catch (SQLException e) {
+            throw Throwables.propagate(e);
+        }
+        log.debug("wired {} rows into {}", rows.size(), joinTable);
+        return rows.size();
+    }
+}
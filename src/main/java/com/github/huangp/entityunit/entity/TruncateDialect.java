@@ -0,0 +1,105 @@
+package com.github.huangp.entityunit.entity;
+
+import com.google.common.base.Joiner;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Database specific way of truncating tables and restarting identity columns.
+ * <p/>
+ * <b>NOTE:</b> In most databases truncate is not transactional and will commit current transaction.
+ *
+ * @author Patrick Huang
+ * @see EntityCleaner#truncateAll(javax.persistence.EntityManager, TruncateDialect, Class[])
+ * @see FixtureSnapshot#restore(javax.persistence.EntityManager, com.google.common.base.Function, TruncateDialect)
+ */
+@Slf4j
+public enum TruncateDialect {
+    /**
+     * Disables referential integrity for the whole database during truncation.
+     */
+    H2 {
+        @Override
+        void truncate(EntityManager entityManager, List<String> tables) {
+            truncateWithoutReferentialIntegrity(entityManager, tables,
+                    "SET REFERENTIAL_INTEGRITY FALSE", "SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    },
+    /**
+     * Disables referential integrity for the whole database during truncation.
+     */
+    HSQLDB {
+        @Override
+        void truncate(EntityManager entityManager, List<String> tables) {
+            truncateWithoutReferentialIntegrity(entityManager, tables,
+                    "SET DATABASE REFERENTIAL INTEGRITY FALSE", "SET DATABASE REFERENTIAL INTEGRITY TRUE");
+        }
+    },
+    /**
+     * Disables foreign key checks for current session during truncation.
+     */
+    MYSQL {
+        @Override
+        void truncate(EntityManager entityManager, List<String> tables) {
+            truncateWithoutReferentialIntegrity(entityManager, tables,
+                    "SET FOREIGN_KEY_CHECKS = 0", "SET FOREIGN_KEY_CHECKS = 1");
+        }
+
+        @Override
+        void restartIdentity(EntityManager entityManager, String table, String column, long next) {
+            execute(entityManager, "ALTER TABLE " + table + " AUTO_INCREMENT = " + next);
+        }
+    },
+    /**
+     * Truncates all tables in one statement. Tables referencing them but not given will be truncated as well.
+     */
+    POSTGRESQL {
+        @Override
+        void truncate(EntityManager entityManager, List<String> tables) {
+            execute(entityManager, "TRUNCATE TABLE " + Joiner.on(", ").join(tables) + " CASCADE");
+        }
+
+        /**
+         * Assumes the default sequence name of a serial column (table_column_seq).
+         */
+        @Override
+        void restartIdentity(EntityManager entityManager, String table, String column, long next) {
+            execute(entityManager, "ALTER SEQUENCE " + table + "_" + column + "_seq RESTART WITH " + next);
+        }
+    };
+
+    abstract void truncate(EntityManager entityManager, List<String> tables);
+
+    /**
+     * @param entityManager
+     *         entity manager
+     * @param table
+     *         table name
+     * @param column
+     *         identity column
+     * @param next
+     *         next value the column will generate
+     */
+    void restartIdentity(EntityManager entityManager, String table, String column, long next) {
+        execute(entityManager, "ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + next);
+    }
+
+    private static void truncateWithoutReferentialIntegrity(EntityManager entityManager, List<String> tables,
+                                                            String disable, String enable) {
+        execute(entityManager, disable);
+        try {
+            for (String table : tables) {
+                execute(entityManager, "TRUNCATE TABLE " + table);
+            }
+        } finally {
+            execute(entityManager, enable);
+        }
+    }
+
+    private static void execute(EntityManager entityManager, String sqlString) {
+        int result = entityManager.createNativeQuery(sqlString).executeUpdate();
+        log.debug("execute [{}], affected row: {}", sqlString, result);
+    }
+}
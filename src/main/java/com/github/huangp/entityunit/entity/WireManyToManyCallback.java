@@ -40,8 +40,10 @@ import java.util.Collection;
  *
  * </code>
  * </pre>
+ * To wire many entities at once use ManyToManyWiring.
  *
  * @author Patrick Huang
+ * @see ManyToManyWiring
  */
 @RequiredArgsConstructor
 public class WireManyToManyCallback extends AbstractNoOpCallback {
@@ -4,6 +4,7 @@ import com.github.huangp.entityunit.entity.EntityMakerBuilder;
 import com.github.huangp.entityunit.maker.ScalarValueMakerFactory;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
 import java.util.Collections;
@@ -38,10 +39,16 @@ public class BeanValueHolder {
     }
 
     public BeanValueHolder merge(BeanValueHolder other) {
-        map.putAll(other.map);
+        map.putAll(other.snapshot());
         return this;
     }
 
+    ImmutableMap<Class<?>, Object> snapshot() {
+        synchronized (map) {
+            return ImmutableMap.copyOf(map);
+        }
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
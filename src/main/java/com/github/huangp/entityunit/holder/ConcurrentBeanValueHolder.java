@@ -0,0 +1,143 @@
+package com.github.huangp.entityunit.holder;
+
+import com.github.huangp.entityunit.entity.EntityMakerBuilder;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Holds beans for making entities from multiple threads.
+ * <p/>
+ * Beans given at construction time are shared reference data. They are kept in an immutable map so reading them
+ * needs no locking. They are never altered (i.e. their one to many collections will not be populated).
+ * <p/>
+ * Beans made afterwards go into a session view of the current thread. The session view is bound to an owner
+ * (i.e. the EntityManager in use). If the thread comes back with a different owner, it will start with a new empty
+ * session view. Session views are weakly keyed by their owner, so once an owner is no longer used (i.e. a closed
+ * EntityManager goes out of scope) its made beans can be garbage collected even if the thread lives on in a pool.
+ * A thread that never binds an owner uses a session view of its own which lives as long as the thread.
+ *
+ * @author Patrick Huang
+ * @see EntityMakerBuilder#concurrent()
+ */
+public class ConcurrentBeanValueHolder extends BeanValueHolder {
+    private final ImmutableMap<Class<?>, Object> shared;
+    // owner -> session view. Owners are compared by identity.
+    private final Cache<Object, BeanValueHolder> sessions = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+    private final ThreadLocal<WeakReference<Object>> boundOwner = new ThreadLocal<WeakReference<Object>>();
+
+    /**
+     * @param sharedValues
+     *         shared reference data
+     */
+    public ConcurrentBeanValueHolder(BeanValueHolder sharedValues) {
+        shared = sharedValues.snapshot();
+    }
+
+    /**
+     * Bind session view of current thread to given owner.
+     *
+     * @param owner
+     *         session view owner (i.e. EntityManager)
+     * @return this
+     */
+    public ConcurrentBeanValueHolder bindTo(Object owner) {
+        Preconditions.checkNotNull(owner, "owner");
+        WeakReference<Object> bound = boundOwner.get();
+        if (bound == null || bound.get() != owner) {
+            // start with an empty session view. The previous one is only held (weakly) by its owner.
+            sessions.invalidate(owner);
+            boundOwner.set(new WeakReference<Object>(owner));
+        }
+        return this;
+    }
+
+    @Override
+    public <T> BeanValueHolder putIfNotNull(Class<T> type, T bean) {
+        currentSession().putIfNotNull(type, bean);
+        return this;
+    }
+
+    @Override
+    public <T> Optional<T> tryGet(Class<T> type) {
+        Optional<T> made = tryGetFromSession(type);
+        if (made.isPresent()) {
+            return made;
+        }
+        return Optional.fromNullable((T) shared.get(type));
+    }
+
+    /**
+     * @param type
+     *         bean type
+     * @param <T>
+     *         bean type
+     * @return bean made by current thread only (excludes shared reference data)
+     */
+    public <T> Optional<T> tryGetFromSession(Class<T> type) {
+        return currentSession().tryGet(type);
+    }
+
+    /**
+     * Clear session view of current thread. Shared reference data is untouched.
+     */
+    @Override
+    public void clear() {
+        currentSession().clear();
+    }
+
+    /**
+     * Merge into session view of current thread.
+     */
+    @Override
+    public BeanValueHolder merge(BeanValueHolder other) {
+        currentSession().merge(other);
+        return this;
+    }
+
+    @Override
+    ImmutableMap<Class<?>, Object> snapshot() {
+        Map<Class<?>, Object> values = Maps.newIdentityHashMap();
+        values.putAll(shared);
+        values.putAll(currentSession().snapshot());
+        return ImmutableMap.copyOf(values);
+    }
+
+    private BeanValueHolder currentSession() {
+        WeakReference<Object> bound = boundOwner.get();
+        Object owner = bound == null ? null : bound.get();
+        if (owner == null) {
+            owner = Thread.currentThread();
+        }
+        try {
+            return sessions.get(owner, new Callable<BeanValueHolder>() {
+                @Override
+                public BeanValueHolder call() throws Exception {
+                    return new BeanValueHolder();
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("shared", shared)
+                .add("session", currentSession())
+                .toString();
+    }
+}
@@ -1,15 +1,12 @@
 package com.github.huangp.entityunit.maker;
 
-import com.github.huangp.entityunit.entity.EntityClass;
 import com.github.huangp.entityunit.entity.MakeContext;
+import com.github.huangp.entityunit.metrics.MakeListener;
 import com.github.huangp.entityunit.util.ClassUtil;
 import com.github.huangp.entityunit.util.Settable;
 import com.google.common.base.*;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.beanutils.BeanUtils;
 
 import javax.persistence.Id;
 import javax.persistence.Version;
@@ -35,32 +32,38 @@ import static com.github.huangp.entityunit.util.HasAnnotationPredicate.has;
  *        i.e. for primitive type fields, in some cases we may want to provide a value but in other cases the value may
  *        be derived from constructor parameter or populated in PrePersist method.
  * 4. If class is entity class and has access type of field, it will use reflection to set field value.
- *    Otherwise it uses commons bean util to populate properties (which will ignore protected setters).
+ *    Otherwise it uses public setters to populate properties (protected setters are ignored).
+ *    Constructor, fields and setters are resolved once per class. Makers of constructor parameters and fields are
+ *    resolved once per class and MakeContext (again if PreferredValueMakersRegistry changes).
  * </pre>
  *
  * @see ScalarValueMakerFactory
  * @see SkipFieldValueMaker
+ * @see BeanPlan
  * @author Patrick Huang
  */
 @Slf4j
 public class BeanMaker<T> implements Maker<T> {
     private final Class<T> type;
     private final MakeContext context;
-    private final ScalarValueMakerFactory factory;
 
     public BeanMaker(Class<T> type, MakeContext context) {
         this.type = type;
         this.context = context;
-        factory = new ScalarValueMakerFactory(context);
     }
 
     @Override
     public T value() {
         T result = null;
-        log.debug(">>> bean: {}", type.getName());
         try {
-            Constructor<T> constructor = ClassUtil.findMostArgsConstructor(type);
-            result = constructBean(constructor);
+            BeanPlan<T> plan = BeanPlan.of(type);
+            BeanPlan.MakerPlan makers = plan.makerPlan(context);
+            boolean listening = context.isListening();
+            long start = listening ? System.nanoTime() : 0;
+            result = constructBean(plan, makers);
+            if (listening) {
+                context.getListener().phaseCompleted(MakeListener.Phase.CONSTRUCT, type, System.nanoTime() - start);
+            }
 
             // if we can find public static constants defined in the class, we will use that as value
             Optional<T> constants = ClassUtil.tryFindPublicConstants(type, result);
@@ -69,40 +72,49 @@ public class BeanMaker<T> implements Maker<T> {
             }
 
             // populate all fields
-            return setApplicableFields(result);
+            start = listening ? System.nanoTime() : 0;
+            setApplicableFields(plan, makers, result);
+            if (listening) {
+                context.getListener().phaseCompleted(MakeListener.Phase.POPULATE, type, System.nanoTime() - start);
+            }
+            return result;
         } catch (Exception e) {
             throw Throwables.propagate(e);
         } finally {
-            log.debug("bean of type {} made: {}", type, result);
-            log.debug("<<<");
             context.getBeanValueHolder().putIfNotNull(type, result);
         }
     }
 
-    private T constructBean(Constructor<T> constructor) {
+    private T constructBean(BeanPlan<T> plan, BeanPlan.MakerPlan makers) {
+        PreferredValueMakersRegistry registry = context.getPreferredValueMakers();
+        if (plan.constructorFailed(registry)) {
+            return plan.newInstanceWithNoArg();
+        }
+        Constructor<T> constructor = plan.getConstructor();
         // this may override some default values provided at field declaration. See HCopyTransOptions
-        List<Settable> parameters = ClassUtil.getConstructorParameters(constructor, type);
-        List<Object> paramValues = Lists.transform(parameters, new Function<Settable, Object>() {
-            @Override
-            public Object apply(Settable input) {
-                return factory.from(input).value();
-            }
-        });
+        Maker<?>[] parameterMakers = makers.getConstructorParameterMakers();
 
         try {
-            log.debug("invoke {} constructor with parameters {}", type, parameters);
-            constructor.setAccessible(true);
-            return constructor.newInstance(paramValues.toArray());
+            Object[] paramValues = new Object[parameterMakers.length];
+            for (int i = 0; i < paramValues.length; i++) {
+                paramValues[i] = parameterMakers[i].value();
+            }
+            log.debug("invoke {} constructor with parameters {}", type, plan.getConstructorParameters());
+            return constructor.newInstance(paramValues);
         } catch (Exception e) {
-            log.warn("fail calling constructor method: {}. Will fall back to default constructor", constructor);
-            log.warn("exception {}", e.getMessage());
+            log.warn("fail calling constructor method: {} ({}). Will fall back to default constructor", constructor,
+                    e.getMessage());
             log.debug("exception", e);
-            return ClassUtil.invokeNoArgConstructor(type);
+            context.getListener().constructorFallback(type, e);
+            plan.markConstructorFailed(registry);
+            return plan.newInstanceWithNoArg();
         }
     }
 
-    private T setApplicableFields(T result) throws InvocationTargetException, IllegalAccessException {
-        Iterable<Settable> elements = EntityClass.from(type).getElements();
+    private T setApplicableFields(BeanPlan<T> plan, BeanPlan.MakerPlan makers, T result)
+            throws InvocationTargetException, IllegalAccessException {
+        List<Settable> elements = plan.getElements();
+        Maker<?>[] elementMakers = makers.getElementMakers();
 
         Predicate<Settable> settablePredicate = Predicates.not(
                 Predicates.<Settable>or(
@@ -111,37 +123,36 @@ public class BeanMaker<T> implements Maker<T> {
                         new HasDefaultValuePredicate<T>(result),
                         IdOrVersionPredicate.PREDICATE));
 
-        Iterable<Settable> fieldsToSet = Iterables.filter(elements, settablePredicate);
-        for (Settable settable : fieldsToSet) {
-            trySetValue(result, settable);
+        for (int i = 0; i < elementMakers.length; i++) {
+            Settable settable = elements.get(i);
+            if (settablePredicate.apply(settable)) {
+                trySetValue(plan, result, settable, elementMakers[i]);
+            }
         }
         return result;
 
     }
 
-    private void trySetValue(T result, Settable settable) {
-        log.trace("about to make {}", settable);
-        Object fieldValue = factory.from(settable).value();
+    /**
+     * Made values are not logged. Use MakeTrace to see them.
+     *
+     * @see com.github.huangp.entityunit.metrics.MakeTrace
+     */
+    private void trySetValue(BeanPlan<T> plan, T result, Settable settable, Maker<?> maker) {
+        Object fieldValue = maker.value();
         // this is ugly. But don't want to change the whole design to fit this feature
         if (fieldValue == null || SkipFieldValueMaker.shouldSkipThisField(fieldValue)) {
             return;
         }
-        log.trace("made value {}", fieldValue);
         try {
-            if (ClassUtil.isAccessTypeIsField(type)) {
-                ClassUtil.setValue(settable, result, fieldValue);
-            } else {
-                BeanUtils.setProperty(result, settable.getSimpleName(), fieldValue);
+            plan.write(result, settable, fieldValue);
+            if (context.isListening()) {
+                context.getListener().valueSet(type, settable, fieldValue);
             }
         } catch (Exception e) {
-            log.warn("can not set property: {}={}", settable, fieldValue);
-            log.warn("exception {}", e.getMessage());
+            log.warn("can not set property: {}={} ({})", settable, fieldValue, e.getMessage());
             log.debug("exception", e);
-        } finally {
-            if (log.isDebugEnabled()) {
-                String field = Strings.padEnd(settable.getSimpleName(), 20, ' ');
-                log.debug("    {} <=     {}", field, settable.valueIn(result));
-            }
+            context.getListener().setValueFailed(type, settable, e);
         }
     }
 
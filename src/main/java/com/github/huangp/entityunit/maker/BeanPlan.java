@@ -0,0 +1,354 @@
+package com.github.huangp.entityunit.maker;
+
+import com.github.huangp.entityunit.entity.EntityClass;
+import com.github.huangp.entityunit.entity.MakeContext;
+import com.github.huangp.entityunit.util.ClassUtil;
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.primitives.Primitives;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.MethodUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+
+import javax.persistence.AccessType;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Pre-resolved constructor and field/property writers of a bean class.
+ * <p/>
+ * Reflection look ups (constructor selection, field and setter method resolution) and setAccessible calls are done
+ * once per class. Making another bean of the same class only invokes the resolved members.
+ * <p/>
+ * Makers of constructor parameters and elements are resolved by ScalarValueMakerFactory once per MakeContext (and
+ * registry version) and kept in arrays in the same order as the parameters and elements. Making a value is an array
+ * index plus Maker#value(), so stateful makers keep their state across beans.
+ * <p/>
+ * If the constructor with the most arguments fails, it is remembered per PreferredValueMakersRegistry and registry
+ * version (preferred constructor parameter makers may make it work) and following beans are made with the no arg
+ * constructor straight away until the registry changes.
+ * <p/>
+ * Writers follow the same rules as before:
+ * <pre>
+ * Access type is the class access type unless the attribute overrides it (see EntityClass#getAccessType(Settable)).
+ * For access type field, the first field with the settable name in class hierarchy is set directly.
+ * For access type property, the accessible public setter is invoked.
+ *   If the value needs conversion it falls back to commons bean util.
+ *   If there is no public setter the property is skipped (same as commons bean util).
+ * </pre>
+ *
+ * @author Patrick Huang
+ * @see BeanMaker
+ */
+@Slf4j
+class BeanPlan<T> {
+    // one plan per bean class, bounded by the model
+    private static final Cache<Class<?>, BeanPlan<?>> CACHE = CacheBuilder.newBuilder()
+            .build();
+
+    private final Class<T> type;
+    @Getter
+    private final Constructor<T> constructor;
+    @Getter
+    private final List<Settable> constructorParameters;
+    private final Supplier<Map<String, Writer>> writers;
+    private final Supplier<List<Settable>> elements;
+    // make context (weak identity keys) -> resolved makers
+    private final Cache<MakeContext, MakerPlan> makerPlans = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+    private final Supplier<Constructor<T>> noArgConstructor;
+    // registries (weak identity keys) -> registry version that made the constructor fail
+    private final Cache<PreferredValueMakersRegistry, Integer> constructorFailedWith = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    private BeanPlan(final Class<T> type) {
+        this.type = type;
+        constructor = ClassUtil.findMostArgsConstructor(type);
+        constructor.setAccessible(true);
+        constructorParameters = ClassUtil.getConstructorParameters(constructor, type);
+        noArgConstructor = Suppliers.memoize(new Supplier<Constructor<T>>() {
+            @Override
+            public Constructor<T> get() {
+                try {
+                    Constructor<T> noArg = type.getConstructor();
+                    noArg.setAccessible(true);
+                    return noArg;
+                } catch (NoSuchMethodException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+        });
+        // elements are only needed when the bean is not a public constant
+        elements = Suppliers.memoize(new Supplier<List<Settable>>() {
+            @Override
+            public List<Settable> get() {
+                return ImmutableList.copyOf(EntityClass.from(type).getElements());
+            }
+        });
+        writers = Suppliers.memoize(new Supplier<Map<String, Writer>>() {
+            @Override
+            public Map<String, Writer> get() {
+                return resolveWriters(type);
+            }
+        });
+    }
+
+    /**
+     * Factory method. Plans are cached per class.
+     *
+     * @param type
+     *         bean type
+     * @param <T>
+     *         bean type
+     * @return plan for the bean type
+     */
+    static <T> BeanPlan<T> of(final Class<T> type) {
+        try {
+            return (BeanPlan<T>) CACHE.get(type, new Callable<BeanPlan<?>>() {
+                @Override
+                public BeanPlan<?> call() throws Exception {
+                    return new BeanPlan<T>(type);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * @param registry
+     *         preferred value makers used to make constructor parameters
+     * @return whether the constructor with the most arguments has failed with current version of given registry
+     */
+    boolean constructorFailed(PreferredValueMakersRegistry registry) {
+        Integer failedVersion = constructorFailedWith.getIfPresent(registry);
+        return failedVersion != null && failedVersion == registry.version();
+    }
+
+    /**
+     * Use the no arg constructor for all following beans made with given registry until it changes.
+     *
+     * @param registry
+     *         preferred value makers used to make constructor parameters
+     */
+    void markConstructorFailed(PreferredValueMakersRegistry registry) {
+        constructorFailedWith.put(registry, registry.version());
+    }
+
+    /**
+     * @return new instance from the public no arg constructor
+     */
+    T newInstanceWithNoArg() {
+        try {
+            return noArgConstructor.get().newInstance();
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * @return elements of this bean type
+     * @see EntityClass#getElements()
+     */
+    List<Settable> getElements() {
+        return elements.get();
+    }
+
+    /**
+     * @param context
+     *         make context
+     * @return makers resolved for given context
+     */
+    MakerPlan makerPlan(MakeContext context) {
+        int registryVersion = context.getPreferredValueMakers().version();
+        MakerPlan plan = makerPlans.getIfPresent(context);
+        if (plan == null || plan.registryVersion != registryVersion) {
+            // racing threads resolve equivalent makers
+            ScalarValueMakerFactory factory = new ScalarValueMakerFactory(context);
+            plan = new MakerPlan(factory, registryVersion, resolveMakers(factory, constructorParameters));
+            makerPlans.put(context, plan);
+        }
+        return plan;
+    }
+
+    private static Maker<?>[] resolveMakers(ScalarValueMakerFactory factory, List<Settable> settables) {
+        Maker<?>[] makers = new Maker<?>[settables.size()];
+        for (int i = 0; i < makers.length; i++) {
+            makers[i] = factory.from(settables.get(i));
+        }
+        return makers;
+    }
+
+    /**
+     * Set value to the settable in given bean.
+     *
+     * @param bean
+     *         bean instance
+     * @param settable
+     *         settable of this bean type
+     * @param value
+     *         value to set
+     * @throws Exception
+     *         if the value can not be set
+     */
+    void write(T bean, Settable settable, Object value) throws Exception {
+        Writer writer = writers.get().get(settable.getSimpleName());
+        if (writer == null) {
+            writer = new BeanUtilsWriter(settable.getSimpleName());
+        }
+        writer.write(bean, value);
+    }
+
+    private static Map<String, Writer> resolveWriters(Class<?> type) {
+        EntityClass entityClass = EntityClass.from(type);
+        ImmutableMap.Builder<String, Writer> builder = ImmutableMap.builder();
+        for (Settable settable : entityClass.getElements()) {
+            String name = settable.getSimpleName();
+            Writer writer = entityClass.getAccessType(settable) == AccessType.FIELD ? fieldWriter(type, name)
+                    : propertyWriter(type, name);
+            builder.put(name, writer);
+        }
+        return builder.build();
+    }
+
+    private static Writer fieldWriter(Class<?> type, final String name) {
+        Optional<Field> field = Iterables.tryFind(ClassUtil.getAllDeclaredFields(type), new Predicate<Field>() {
+            @Override
+            public boolean apply(Field input) {
+                return input.getName().equals(name);
+            }
+        });
+        if (!field.isPresent()) {
+            return new MissingFieldWriter(name);
+        }
+        field.get().setAccessible(true);
+        return new FieldWriter(field.get());
+    }
+
+    private static Writer propertyWriter(Class<?> type, String name) {
+        Optional<PropertyDescriptor> descriptor = findPropertyDescriptor(type, name);
+        if (!descriptor.isPresent() || descriptor.get().getWriteMethod() == null) {
+            log.trace("{} - {} has no public setter and will be skipped", type.getName(), name);
+            return NoOpWriter.WRITER;
+        }
+        Method setter = MethodUtils.getAccessibleMethod(type, descriptor.get().getWriteMethod());
+        if (setter == null) {
+            return new BeanUtilsWriter(name);
+        }
+        setter.setAccessible(true);
+        return new SetterWriter(setter, Primitives.wrap(setter.getParameterTypes()[0]), name);
+    }
+
+    private static Optional<PropertyDescriptor> findPropertyDescriptor(Class<?> type, String name) {
+        for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(type)) {
+            if (descriptor.getName().equals(name)) {
+                return Optional.of(descriptor);
+            }
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * Makers resolved for one MakeContext.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    class MakerPlan {
+        private final ScalarValueMakerFactory factory;
+        private final int registryVersion;
+        @Getter
+        private final Maker<?>[] constructorParameterMakers;
+        private volatile Maker<?>[] elementMakers;
+
+        /**
+         * @return makers in the same order as BeanPlan#getElements()
+         */
+        Maker<?>[] getElementMakers() {
+            Maker<?>[] makers = elementMakers;
+            if (makers == null) {
+                makers = resolveMakers(factory, getElements());
+                elementMakers = makers;
+            }
+            return makers;
+        }
+    }
+
+    private interface Writer {
+        void write(Object bean, Object value) throws Exception;
+    }
+
+    @RequiredArgsConstructor
+    private static class FieldWriter implements Writer {
+        private final Field field;
+
+        @Override
+        public void write(Object bean, Object value) throws IllegalAccessException {
+            field.set(bean, value);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class SetterWriter implements Writer {
+        private final Method setter;
+        private final Class<?> parameterType;
+        private final String name;
+
+        @Override
+        public void write(Object bean, Object value) throws Exception {
+            if (parameterType.isInstance(value)) {
+                setter.invoke(bean, value);
+            } else {
+                // let commons bean util do the conversion
+                BeanUtils.setProperty(bean, name, value);
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class BeanUtilsWriter implements Writer {
+        private final String name;
+
+        @Override
+        public void write(Object bean, Object value) throws Exception {
+            BeanUtils.setProperty(bean, name, value);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class MissingFieldWriter implements Writer {
+        private final String name;
+
+        @Override
+        public void write(Object bean, Object value) {
+            throw new IllegalStateException("can not find field " + name + " in " + bean.getClass());
+        }
+    }
+
+    private static enum NoOpWriter implements Writer {
+        WRITER;
+
+        @Override
+        public void write(Object bean, Object value) {
+        }
+    }
+}
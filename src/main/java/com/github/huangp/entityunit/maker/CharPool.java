@@ -0,0 +1,59 @@
+package com.github.huangp.entityunit.maker;
+
+import java.util.Random;
+
+/**
+ * Buffer of random letters. Strings take characters sequentially and the buffer is refilled in bulk once used up.
+ * <p/>
+ * Not thread safe.
+ *
+ * @author Patrick Huang
+ * @see ValueGenerator
+ */
+class CharPool {
+    private static final int SIZE = 4096;
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private final Random random;
+    private final char[] buffer = new char[SIZE];
+    private int position = SIZE;
+
+    CharPool(Random random) {
+        this.random = random;
+    }
+
+    String next(int length, String suffix) {
+        if (suffix.isEmpty() && length <= SIZE - position) {
+            String result = new String(buffer, position, length);
+            position += length;
+            return result;
+        }
+        char[] chars = new char[length + suffix.length()];
+        int filled = 0;
+        while (filled < length) {
+            if (position == SIZE) {
+                refill();
+            }
+            int count = Math.min(length - filled, SIZE - position);
+            System.arraycopy(buffer, position, chars, filled, count);
+            position += count;
+            filled += count;
+        }
+        suffix.getChars(0, suffix.length(), chars, length);
+        return new String(chars);
+    }
+
+    private void refill() {
+        int filled = 0;
+        while (filled < SIZE) {
+            long bits = random.nextLong();
+            // ten 6 bits indexes out of each random long. Indexes beyond letters are discarded
+            for (int i = 0; i < 10 && filled < SIZE; i++, bits >>>= 6) {
+                int index = (int) (bits & 0x3F);
+                if (index < LETTERS.length) {
+                    buffer[filled++] = LETTERS[index];
+                }
+            }
+        }
+        position = 0;
+    }
+}
@@ -1,13 +1,18 @@
 package com.github.huangp.entityunit.maker;
 
+import lombok.RequiredArgsConstructor;
+
 import java.util.Date;
 
 /**
  * @author Patrick Huang
  */
+@RequiredArgsConstructor
 class DateMaker implements Maker<Date> {
+    private final ValueGenerator generator;
+
     @Override
     public Date value() {
-        return new Date();
+        return generator.nextDate();
     }
 }
@@ -1,41 +1,193 @@
 package com.github.huangp.entityunit.maker;
 
+import com.github.huangp.entityunit.util.ClassUtil;
 import com.github.huangp.entityunit.util.Settable;
 import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
 
 import javax.persistence.Id;
 import javax.persistence.Version;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import java.lang.annotation.Annotation;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Predicates.instanceOf;
 import static com.google.common.base.Predicates.or;
 
 /**
+ * Makes sequential numbers of the declared number type.
+ * <p/>
+ * Each field/property has its own sequence (see ValueGenerator) so makers of different fields never share a counter.
+ * Numbers start from 1 unless constrained by Min, Max, DecimalMin or DecimalMax. Once the sequence goes beyond the
+ * constraint it wraps around to the minimum. Constraints beyond the range of the declared type are narrowed to it.
+ *
  * @author Patrick Huang
  */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 class NumberMaker implements Maker<Number> {
-    private static AtomicInteger counter = new AtomicInteger(0);
+    private final AtomicLong sequence;
+    private final NumberType numberType;
+    private final long min;
+    // number of values between min and max. Not positive if it overflows (no need to wrap around)
+    private final long range;
 
     @Override
     public Number value() {
-        return next();
+        long offset = sequence.getAndIncrement();
+        long value = range > 0 ? min + offset % range : min + offset;
+        return numberType.box(value);
     }
 
-    private static int next() {
-        return counter.incrementAndGet();
-    }
-
-    public static Maker<Number> from(Settable settable) {
+    public static Maker<Number> from(Settable settable, ValueGenerator generator) {
         List<Annotation> annotations = Lists.newArrayList(settable.getAnnotations());
         Optional<Annotation> idOrVersion = Iterables.tryFind(annotations,
                 or(instanceOf(Id.class), instanceOf(Version.class)));
         if (idOrVersion.isPresent()) {
             return new NullMaker<Number>();
         }
-        return new NumberMaker();
+        NumberType numberType = NumberType.of(ClassUtil.getRawType(settable.getType()));
+        Long min = null;
+        long max = numberType.maxValue;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Min) {
+                min = ((Min) annotation).value();
+            }
+            if (annotation instanceof DecimalMin) {
+                min = new BigDecimal(((DecimalMin) annotation).value()).setScale(0, RoundingMode.CEILING).longValue();
+            }
+            if (annotation instanceof Max) {
+                max = Math.min(max, ((Max) annotation).value());
+            }
+            if (annotation instanceof DecimalMax) {
+                long decimalMax = new BigDecimal(((DecimalMax) annotation).value()).setScale(0, RoundingMode.FLOOR)
+                        .longValue();
+                max = Math.min(max, decimalMax);
+            }
+        }
+        if (min == null) {
+            min = Math.min(1L, max);
+        }
+        // i.e. Min(-1000) on a byte
+        min = Math.max(min, numberType.minValue);
+        Preconditions.checkState(min <= max, "%s has min value greater than max value of %s",
+                settable.fullyQualifiedName(), numberType);
+        return new NumberMaker(generator.sequence(settable.fullyQualifiedName()), numberType, min, max - min + 1);
+    }
+
+    private static enum NumberType {
+        BYTE(Byte.MIN_VALUE, Byte.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return (byte) value;
+            }
+        },
+        SHORT(Short.MIN_VALUE, Short.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return (short) value;
+            }
+        },
+        INTEGER(Integer.MIN_VALUE, Integer.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return (int) value;
+            }
+        },
+        LONG(Long.MIN_VALUE, Long.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return value;
+            }
+        },
+        FLOAT(Long.MIN_VALUE, Long.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return (float) value;
+            }
+        },
+        DOUBLE(Long.MIN_VALUE, Long.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return (double) value;
+            }
+        },
+        BIG_INTEGER(Long.MIN_VALUE, Long.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return BigInteger.valueOf(value);
+            }
+        },
+        BIG_DECIMAL(Long.MIN_VALUE, Long.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return BigDecimal.valueOf(value);
+            }
+        },
+        ATOMIC_INTEGER(Integer.MIN_VALUE, Integer.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return new AtomicInteger((int) value);
+            }
+        },
+        ATOMIC_LONG(Long.MIN_VALUE, Long.MAX_VALUE) {
+            @Override
+            Number box(long value) {
+                return new AtomicLong(value);
+            }
+        };
+
+        private final long minValue;
+        private final long maxValue;
+
+        NumberType(long minValue, long maxValue) {
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        abstract Number box(long value);
+
+        static NumberType of(Class<?> type) {
+            if (type == Byte.class) {
+                return BYTE;
+            }
+            if (type == Short.class) {
+                return SHORT;
+            }
+            if (type == Long.class) {
+                return LONG;
+            }
+            if (type == Float.class) {
+                return FLOAT;
+            }
+            if (type == Double.class) {
+                return DOUBLE;
+            }
+            if (type == BigInteger.class) {
+                return BIG_INTEGER;
+            }
+            if (type == BigDecimal.class) {
+                return BIG_DECIMAL;
+            }
+            if (type == AtomicInteger.class) {
+                return ATOMIC_INTEGER;
+            }
+            if (type == AtomicLong.class) {
+                return ATOMIC_LONG;
+            }
+            // Integer, Number or anything else
+            return INTEGER;
+        }
     }
 }
@@ -5,13 +5,19 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import org.hamcrest.Matcher;
-import org.hamcrest.Matchers;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * As the name suggested if random value is not desirable for some fields, you can register a custom maker for them.
+ * <p/>
+ * Makers registered by field/property name or constructor parameter index are looked up by exact name.
+ * Makers registered with custom matchers are only evaluated when there is no exact name match.
+ * Resolved result is remembered per settable name until the registry is changed. Each change increments the
+ * registry version so that makers resolved by BeanPlan can be resolved again.
  *
  * @author Patrick Huang
  * @see Settable
@@ -20,7 +26,10 @@ import java.util.Map;
  */
 public class PreferredValueMakersRegistry {
 
+    private Map<String, Maker<?>> exactNameMakers = new HashMap<String, Maker<?>>();
     private Map<Matcher<?>, Maker<?>> makers = new HashMap<Matcher<?>, Maker<?>>();
+    private final ConcurrentMap<String, Optional<Maker<?>>> resolved = new ConcurrentHashMap<String, Optional<Maker<?>>>();
+    private volatile int version;
 
     /**
      * Add a maker with custom matcher.
@@ -35,6 +44,7 @@ public class PreferredValueMakersRegistry {
         Preconditions.checkNotNull(settableMatcher);
         Preconditions.checkNotNull(maker);
         makers.put(settableMatcher, maker);
+        changed();
         return this;
     }
 
@@ -46,7 +56,9 @@ public class PreferredValueMakersRegistry {
      * @return this
      */
     public PreferredValueMakersRegistry merge(PreferredValueMakersRegistry otherRegistry) {
+        exactNameMakers.putAll(otherRegistry.exactNameMakers);
         makers.putAll(otherRegistry.makers);
+        changed();
         return this;
     }
 
@@ -74,8 +86,7 @@ public class PreferredValueMakersRegistry {
     public PreferredValueMakersRegistry addFieldOrPropertyMaker(Class ownerType, String propertyName, Maker<?> maker) {
         Preconditions.checkNotNull(ownerType);
         Preconditions.checkNotNull(propertyName);
-        makers.put(Matchers.equalTo(String.format(Settable.FULL_NAME_FORMAT, ownerType.getName(), propertyName)), maker);
-        return this;
+        return addExactNameMaker(String.format(Settable.FULL_NAME_FORMAT, ownerType.getName(), propertyName), maker);
     }
 
     /**
@@ -102,23 +113,43 @@ public class PreferredValueMakersRegistry {
     public PreferredValueMakersRegistry addConstructorParameterMaker(Class ownerType, int argIndex, Maker<?> maker) {
         Preconditions.checkNotNull(ownerType);
         Preconditions.checkArgument(argIndex >= 0);
-        makers.put(Matchers.equalTo(String.format(Settable.FULL_NAME_FORMAT, ownerType.getName(), "arg" + argIndex)), maker);
+        return addExactNameMaker(String.format(Settable.FULL_NAME_FORMAT, ownerType.getName(), "arg" + argIndex), maker);
+    }
+
+    private PreferredValueMakersRegistry addExactNameMaker(String fullyQualifiedName, Maker<?> maker) {
+        Preconditions.checkNotNull(maker);
+        exactNameMakers.put(fullyQualifiedName, maker);
+        changed();
         return this;
     }
 
     /**
      * Try to get a registered maker for a settable.
-     * It will use the key (Matcher) to match com.github.huangp.entityunit.util.Settable#fullyQualifiedName(),
-     * if there is a match found, it will return that.
+     * It will first look up makers registered by exact name. Otherwise it will use the key (Matcher) to match
+     * com.github.huangp.entityunit.util.Settable#fullyQualifiedName(), if there is a match found, it will return that.
      *
      * @param settable
      *         settable
      * @return Optional maker
      */
     public Optional<Maker<?>> getMaker(Settable settable) {
-        for (Matcher<?> matcher : makers.keySet()) {
-            if (matcher.matches(settable.fullyQualifiedName())) {
-                return Optional.<Maker<?>>of(makers.get(matcher));
+        String fullyQualifiedName = settable.fullyQualifiedName();
+        Optional<Maker<?>> maker = resolved.get(fullyQualifiedName);
+        if (maker == null) {
+            maker = resolve(fullyQualifiedName);
+            resolved.put(fullyQualifiedName, maker);
+        }
+        return maker;
+    }
+
+    private Optional<Maker<?>> resolve(String fullyQualifiedName) {
+        Maker<?> exactNameMaker = exactNameMakers.get(fullyQualifiedName);
+        if (exactNameMaker != null) {
+            return Optional.<Maker<?>>of(exactNameMaker);
+        }
+        for (Map.Entry<Matcher<?>, Maker<?>> entry : makers.entrySet()) {
+            if (entry.getKey().matches(fullyQualifiedName)) {
+                return Optional.<Maker<?>>of(entry.getValue());
             }
         }
         return Optional.absent();
@@ -130,13 +161,28 @@ public class PreferredValueMakersRegistry {
      * @return this
      */
     public PreferredValueMakersRegistry clear() {
+        exactNameMakers.clear();
         makers.clear();
+        changed();
         return this;
     }
 
+    private void changed() {
+        resolved.clear();
+        version++;
+    }
+
+    /**
+     * @return number of changes made to this registry
+     */
+    int version() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
+                .add("exactNameMakers", exactNameMakers)
                 .add("makers", makers)
                 .toString();
     }
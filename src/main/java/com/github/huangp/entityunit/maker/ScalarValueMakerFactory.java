@@ -21,19 +21,24 @@ import java.util.Date;
  * <pre>
  * For primitive type, a maker that uses primitive default values.
  * For String type, a maker that generates random string but respects JSR303 Size annotation and email (if applicable).
- * For Date type, a maker that returns current date.
- * For Number type and sub types, a maker that generates random integer.
+ * For Date type, a maker that returns current date (or a fixed date if seeded).
+ * For Number type and sub types, a maker that generates sequential number of the type within Min/Max constraint.
  * For array, collection and map type, a maker always return null.
  * For enum type, a maker returns the first enum constant.
  * For Entity type, it will try to reuse from BeanValueHolder or null.
  * For any other type, assuming it's a bean and return a BeanMaker.
  * </pre>
+ * Strings, numbers and dates are generated by MakeContext.getValueGenerator().
+ * <p/>
+ * BeanMaker does not call this for every value. Makers are resolved once per settable and kept in BeanPlan, so a
+ * returned maker must be reusable for all values of the settable.
  *
  * @author Patrick Huang
  * @see PreferredValueMakersRegistry
  * @see BeanValueHolder
  * @see BeanMaker
  * @see MakeContext
+ * @see ValueGenerator
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -60,13 +65,13 @@ public class ScalarValueMakerFactory {
             return new PrimitiveMaker(type);
         }
         if (type == String.class) {
-            return StringMaker.from(settable);
+            return StringMaker.from(settable, context.getValueGenerator());
         }
         if (type == Date.class) {
-            return new DateMaker();
+            return new DateMaker(context.getValueGenerator());
         }
         if (Number.class.isAssignableFrom(rawType)) {
-            return NumberMaker.from(settable);
+            return NumberMaker.from(settable, context.getValueGenerator());
         }
         if (ClassUtil.isArray(type)) {
             log.trace("array type: {}", rawType.getComponentType());
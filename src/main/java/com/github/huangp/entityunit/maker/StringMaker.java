@@ -5,7 +5,6 @@ import com.google.common.base.Optional;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.RandomStringUtils;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -14,17 +13,25 @@ import javax.validation.constraints.Size;
 import java.lang.annotation.Annotation;
 
 /**
+ * Makes random alphabetic strings.
+ * <p/>
+ * Characters are sliced from a pool of pre-generated random letters, so making a string allocates nothing but the
+ * string itself.
+ *
  * @author Patrick Huang
+ * @see ValueGenerator
  */
 @Slf4j
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 class StringMaker implements Maker<String> {
     public static final int DEFAULT_MAX = 10;
+    private static final String EMAIL_SUFFIX = "@nowhere.org";
+    private static final int EMAIL_NAME_LENGTH = 5;
+    private final ValueGenerator generator;
     private final boolean isEmail;
-    private final int min;
-    private final int max;
+    private final int length;
 
-    public static StringMaker from(Settable settable) {
+    public static StringMaker from(Settable settable, ValueGenerator generator) {
 
         boolean isEmail = false;
         int min = 0;
@@ -55,7 +62,8 @@ class StringMaker implements Maker<String> {
                 log.warn("can not auto generate string matches pattern constraint for {}", settable.fullyQualifiedName());
             }
         }
-        return new StringMaker(isEmail, min, max);
+        int length = Math.max(Math.min(DEFAULT_MAX, max), min);
+        return new StringMaker(generator, isEmail, length);
     }
 
     private static boolean looksLikeEmail(Settable settable, Annotation annotation) {
@@ -65,9 +73,8 @@ class StringMaker implements Maker<String> {
     @Override
     public String value() {
         if (isEmail) {
-            return RandomStringUtils.randomAlphabetic(5) + "@nowhere.org";
+            return generator.nextString(EMAIL_NAME_LENGTH, EMAIL_SUFFIX);
         }
-        int length = Math.min(DEFAULT_MAX, max);
-        return RandomStringUtils.randomAlphabetic(Math.max(length, min));
+        return generator.nextString(length, "");
     }
 }
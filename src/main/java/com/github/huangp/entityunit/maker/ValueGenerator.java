@@ -0,0 +1,136 @@
+package com.github.huangp.entityunit.maker;
+
+import com.google.common.collect.Maps;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of generated scalar values (strings, numbers and dates).
+ * <p/>
+ * Numbers come from named sequences (one per field/property). Sequences belong to the generator, so makers built
+ * separately count independently. By default strings are random and dates are current date.
+ * A seeded generator makes the same sequence of values for the same seed, so given the same model and the same
+ * sequence of make calls the made data is identical between runs. Dates of a seeded generator are fixed.
+ * <p/>
+ * <b>NOTE:</b> seeded generation is only reproducible if entities are made by a single thread.
+ *
+ * @author Patrick Huang
+ * @see ScalarValueMakerFactory
+ * @see com.github.huangp.entityunit.entity.EntityMakerBuilder#seed(long)
+ */
+public abstract class ValueGenerator {
+
+    /**
+     * @return new generator of random values
+     */
+    public static ValueGenerator random() {
+        return new RandomValueGenerator();
+    }
+
+    /**
+     * @param seed
+     *         seed
+     * @return generator that makes the same values for the same seed
+     */
+    public static ValueGenerator seeded(long seed) {
+        return new SeededValueGenerator(seed);
+    }
+
+    /**
+     * @param length
+     *         number of random letters
+     * @param suffix
+     *         fixed suffix
+     * @return random letters followed by suffix
+     */
+    abstract String nextString(int length, String suffix);
+
+    /**
+     * @param name
+     *         sequence name
+     * @return sequence of offsets starting from 0
+     */
+    abstract AtomicLong sequence(String name);
+
+    abstract Date nextDate();
+
+    private static AtomicLong getOrCreate(ConcurrentMap<String, AtomicLong> sequences, String name) {
+        AtomicLong sequence = sequences.get(name);
+        if (sequence == null) {
+            AtomicLong newSequence = new AtomicLong();
+            sequence = sequences.putIfAbsent(name, newSequence);
+            if (sequence == null) {
+                sequence = newSequence;
+            }
+        }
+        return sequence;
+    }
+
+    private static class RandomValueGenerator extends ValueGenerator {
+        private static final ThreadLocal<CharPool> POOL = new ThreadLocal<CharPool>() {
+            @Override
+            protected CharPool initialValue() {
+                return new CharPool(new Random());
+            }
+        };
+        private final ConcurrentMap<String, AtomicLong> sequences = Maps.newConcurrentMap();
+
+        @Override
+        String nextString(int length, String suffix) {
+            return POOL.get().next(length, suffix);
+        }
+
+        @Override
+        AtomicLong sequence(String name) {
+            return getOrCreate(sequences, name);
+        }
+
+        @Override
+        Date nextDate() {
+            return new Date();
+        }
+
+        @Override
+        public String toString() {
+            return "random";
+        }
+    }
+
+    private static class SeededValueGenerator extends ValueGenerator {
+        // 2014-01-01T00:00:00Z
+        private static final long FIXED_TIME = 1388534400000L;
+        private final long seed;
+        private final CharPool pool;
+        private final ConcurrentMap<String, AtomicLong> sequences = Maps.newConcurrentMap();
+
+        private SeededValueGenerator(long seed) {
+            this.seed = seed;
+            pool = new CharPool(new Random(seed));
+        }
+
+        @Override
+        String nextString(int length, String suffix) {
+            synchronized (pool) {
+                return pool.next(length, suffix);
+            }
+        }
+
+        @Override
+        AtomicLong sequence(String name) {
+            return getOrCreate(sequences, name);
+        }
+
+        @Override
+        Date nextDate() {
+            return new Date(FIXED_TIME);
+        }
+
+        @Override
+        public String toString() {
+            return "seeded(" + seed + ")";
+        }
+    }
+}
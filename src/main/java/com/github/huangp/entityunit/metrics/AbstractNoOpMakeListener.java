@@ -0,0 +1,36 @@
+package com.github.huangp.entityunit.metrics;
+
+import com.github.huangp.entityunit.util.Settable;
+
+/**
+ * Default implementation that does nothing.
+ *
+ * @author Patrick Huang
+ */
+public class AbstractNoOpMakeListener implements MakeListener {
+    public static final AbstractNoOpMakeListener NO_OP_LISTENER = new AbstractNoOpMakeListener();
+
+    @Override
+    public void phaseCompleted(Phase phase, Class<?> type, long nanos) {
+    }
+
+    @Override
+    public void entityMade(Class<?> entityType) {
+    }
+
+    @Override
+    public void entityReused(Class<?> entityType) {
+    }
+
+    @Override
+    public void constructorFallback(Class<?> type, Exception cause) {
+    }
+
+    @Override
+    public void valueSet(Class<?> ownerType, Settable settable, Object value) {
+    }
+
+    @Override
+    public void setValueFailed(Class<?> ownerType, Settable settable, Exception cause) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.huangp.entityunit.metrics;
+
+import com.github.huangp.entityunit.util.Settable;
+
+/**
+ * Listener that gets notified while EntityMaker makes and persists entities.
+ * <p/>
+ * Listeners are called on the making thread so implementations should be cheap and, for concurrent makers, thread
+ * safe.
+ *
+ * @author Patrick Huang
+ * @see MakeStatistics
+ * @see MakeTrace
+ * @see MakeListeners#chain(MakeListener, MakeListener...)
+ * @see com.github.huangp.entityunit.entity.EntityMakerBuilder#listener(MakeListener)
+ */
+public interface MakeListener {
+
+    /**
+     * Phases of making and persisting entities.
+     */
+    enum Phase {
+        /**
+         * Scanning the dependency graph of the asking entity type.
+         */
+        SCAN,
+        /**
+         * Making (or reusing) all entities required by one asking entity. Includes CONSTRUCT and POPULATE.
+         */
+        MAKE,
+        /**
+         * Invoking constructor of a bean.
+         */
+        CONSTRUCT,
+        /**
+         * Making and setting field or property values of a bean. Includes making nested beans.
+         */
+        POPULATE,
+        /**
+         * Invoking callbacks before and after persist.
+         */
+        CALLBACK,
+        /**
+         * Persisting and writing entities to database.
+         */
+        PERSIST
+    }
+
+    /**
+     * @param phase
+     *         completed phase
+     * @param type
+     *         asking entity type, or bean type for CONSTRUCT and POPULATE
+     * @param nanos
+     *         elapsed time in nanoseconds
+     */
+    void phaseCompleted(Phase phase, Class<?> type, long nanos);
+
+    /**
+     * @param entityType
+     *         type of a newly made entity
+     */
+    void entityMade(Class<?> entityType);
+
+    /**
+     * @param entityType
+     *         type of an entity reused from BeanValueHolder
+     */
+    void entityReused(Class<?> entityType);
+
+    /**
+     * Constructor with the most arguments failed and the no arg constructor is used.
+     *
+     * @param type
+     *         bean type
+     * @param cause
+     *         exception from constructor
+     */
+    void constructorFallback(Class<?> type, Exception cause);
+
+    /**
+     * A made value is set to a bean.
+     *
+     * @param ownerType
+     *         bean type
+     * @param settable
+     *         field or property
+     * @param value
+     *         made value
+     */
+    void valueSet(Class<?> ownerType, Settable settable, Object value);
+
+    /**
+     * A made value can not be set.
+     *
+     * @param ownerType
+     *         bean type
+     * @param settable
+     *         field or property
+     * @param cause
+     *         exception from setter or reflection
+     */
+    void setValueFailed(Class<?> ownerType, Settable settable, Exception cause);
+}
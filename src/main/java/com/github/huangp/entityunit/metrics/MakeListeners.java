@@ -0,0 +1,78 @@
+package com.github.huangp.entityunit.metrics;
+
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Factory class.
+ *
+ * @author Patrick Huang
+ */
+public final class MakeListeners {
+
+    private MakeListeners() {
+    }
+
+    /**
+     * Chain listeners together.
+     *
+     * @param one
+     *         first listener
+     * @param others
+     *         other listeners
+     * @return a chained listener that notifies all listeners in order
+     */
+    public static MakeListener chain(MakeListener one, MakeListener... others) {
+        return new ChainedListener(one, others);
+    }
+
+    private static class ChainedListener implements MakeListener {
+        private final ImmutableList<MakeListener> listeners;
+
+        private ChainedListener(MakeListener one, MakeListener... rest) {
+            listeners = ImmutableList.<MakeListener>builder().add(one).add(rest).build();
+        }
+
+        @Override
+        public void phaseCompleted(Phase phase, Class<?> type, long nanos) {
+            for (MakeListener listener : listeners) {
+                listener.phaseCompleted(phase, type, nanos);
+            }
+        }
+
+        @Override
+        public void entityMade(Class<?> entityType) {
+            for (MakeListener listener : listeners) {
+                listener.entityMade(entityType);
+            }
+        }
+
+        @Override
+        public void entityReused(Class<?> entityType) {
+            for (MakeListener listener : listeners) {
+                listener.entityReused(entityType);
+            }
+        }
+
+        @Override
+        public void constructorFallback(Class<?> type, Exception cause) {
+            for (MakeListener listener : listeners) {
+                listener.constructorFallback(type, cause);
+            }
+        }
+
+        @Override
+        public void valueSet(Class<?> ownerType, Settable settable, Object value) {
+            for (MakeListener listener : listeners) {
+                listener.valueSet(ownerType, settable, value);
+            }
+        }
+
+        @Override
+        public void setValueFailed(Class<?> ownerType, Settable settable, Exception cause) {
+            for (MakeListener listener : listeners) {
+                listener.setValueFailed(ownerType, settable, cause);
+            }
+        }
+    }
+}
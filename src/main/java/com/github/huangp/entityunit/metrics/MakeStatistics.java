@@ -0,0 +1,231 @@
+package com.github.huangp.entityunit.metrics;
+
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory statistics of making entities.
+ * <p/>
+ * Keeps a histogram per phase and per phase and type, and counts made/reused entities per type. Thread safe.
+ * <pre>
+ * {@code
+ *
+ * MakeStatistics statistics = new MakeStatistics();
+ * EntityMaker maker = EntityMakerBuilder.builder().listener(statistics).build();
+ * // make entities
+ * log.info("slowest to make: {}", statistics.histogram(Phase.MAKE, HTextFlowTarget.class));
+ * }
+ * </pre>
+ *
+ * @author Patrick Huang
+ */
+@Slf4j
+public class MakeStatistics extends AbstractNoOpMakeListener implements MakeStatisticsMXBean {
+    private final Map<Phase, Histogram> phases = Maps.newEnumMap(Phase.class);
+    private final ConcurrentMap<Phase, ConcurrentMap<Class<?>, Histogram>> phasesByType = Maps.newConcurrentMap();
+    private final ConcurrentMap<Class<?>, AtomicLong> made = Maps.newConcurrentMap();
+    private final ConcurrentMap<Class<?>, AtomicLong> reused = Maps.newConcurrentMap();
+    private final AtomicLong constructorFallbacks = new AtomicLong();
+    private final AtomicLong setValueFailures = new AtomicLong();
+
+    public MakeStatistics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Histogram());
+            phasesByType.put(phase, Maps.<Class<?>, Histogram>newConcurrentMap());
+        }
+    }
+
+    @Override
+    public void phaseCompleted(Phase phase, Class<?> type, long nanos) {
+        phases.get(phase).record(nanos);
+        ConcurrentMap<Class<?>, Histogram> byType = phasesByType.get(phase);
+        Histogram histogram = byType.get(type);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = MoreObjects.firstNonNull(byType.putIfAbsent(type, newHistogram), newHistogram);
+        }
+        histogram.record(nanos);
+    }
+
+    @Override
+    public void entityMade(Class<?> entityType) {
+        increment(made, entityType);
+    }
+
+    @Override
+    public void entityReused(Class<?> entityType) {
+        increment(reused, entityType);
+    }
+
+    @Override
+    public void constructorFallback(Class<?> type, Exception cause) {
+        constructorFallbacks.incrementAndGet();
+    }
+
+    @Override
+    public void setValueFailed(Class<?> ownerType, Settable settable, Exception cause) {
+        setValueFailures.incrementAndGet();
+    }
+
+    private static void increment(ConcurrentMap<Class<?>, AtomicLong> counters, Class<?> type) {
+        AtomicLong counter = counters.get(type);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = MoreObjects.firstNonNull(counters.putIfAbsent(type, newCounter), newCounter);
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * @param phase
+     *         phase
+     * @return histogram of all types
+     */
+    public Histogram histogram(Phase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * @param phase
+     *         phase
+     * @param type
+     *         asking entity type or bean type
+     * @return histogram of given type (empty if never recorded)
+     */
+    public Histogram histogram(Phase phase, Class<?> type) {
+        return MoreObjects.firstNonNull(phasesByType.get(phase).get(type), new Histogram());
+    }
+
+    /**
+     * @param entityType
+     *         entity type
+     * @return number of made entities of given type
+     */
+    public long madeCount(Class<?> entityType) {
+        AtomicLong counter = made.get(entityType);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * @param entityType
+     *         entity type
+     * @return number of reused entities of given type
+     */
+    public long reusedCount(Class<?> entityType) {
+        AtomicLong counter = reused.get(entityType);
+        return counter == null ? 0 : counter.get();
+    }
+
+    @Override
+    public Map<String, Double> getMeanMillisByPhase() {
+        ImmutableSortedMap.Builder<String, Double> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<Phase, Histogram> entry : phases.entrySet()) {
+            builder.put(entry.getKey().name(), Histogram.toMillis(entry.getValue().getMeanNanos()));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Double> getTotalMillisByPhase() {
+        ImmutableSortedMap.Builder<String, Double> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<Phase, Histogram> entry : phases.entrySet()) {
+            builder.put(entry.getKey().name(), Histogram.toMillis(entry.getValue().getTotalNanos()));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Double> getMeanMakeMillisByEntityType() {
+        ImmutableSortedMap.Builder<String, Double> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<Class<?>, Histogram> entry : phasesByType.get(Phase.MAKE).entrySet()) {
+            builder.put(entry.getKey().getName(), Histogram.toMillis(entry.getValue().getMeanNanos()));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Long> getEntitiesMade() {
+        return countsByName(made);
+    }
+
+    @Override
+    public Map<String, Long> getEntitiesReused() {
+        return countsByName(reused);
+    }
+
+    private static Map<String, Long> countsByName(Map<Class<?>, AtomicLong> counters) {
+        ImmutableSortedMap.Builder<String, Long> builder = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<Class<?>, AtomicLong> entry : counters.entrySet()) {
+            builder.put(entry.getKey().getName(), entry.getValue().get());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public long getConstructorFallbacks() {
+        return constructorFallbacks.get();
+    }
+
+    @Override
+    public long getSetValueFailures() {
+        return setValueFailures.get();
+    }
+
+    /**
+     * Reset all histograms and counters.
+     */
+    @Override
+    public void reset() {
+        for (Phase phase : Phase.values()) {
+            phases.get(phase).reset();
+            phasesByType.get(phase).clear();
+        }
+        made.clear();
+        reused.clear();
+        constructorFallbacks.set(0);
+        setValueFailures.set(0);
+    }
+
+    /**
+     * Register this as a MXBean in the platform MBean server.
+     *
+     * @param name
+     *         name used in the object name com.github.huangp.entityunit:type=MakeStatistics,name=[name]
+     * @return registered object name
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.github.huangp.entityunit:type=MakeStatistics,name="
+                    + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, objectName);
+            log.info("registered MBean {}", objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("phases", phases)
+                .add("made", made)
+                .add("reused", reused)
+                .add("constructorFallbacks", constructorFallbacks)
+                .add("setValueFailures", setValueFailures)
+                .toString();
+    }
+}
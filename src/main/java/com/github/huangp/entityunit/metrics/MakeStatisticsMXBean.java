@@ -0,0 +1,43 @@
+package com.github.huangp.entityunit.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of MakeStatistics. Times are in milliseconds.
+ *
+ * @author Patrick Huang
+ * @see MakeStatistics#registerMBean(String)
+ */
+public interface MakeStatisticsMXBean {
+
+    /**
+     * @return phase -> mean milliseconds
+     */
+    Map<String, Double> getMeanMillisByPhase();
+
+    /**
+     * @return phase -> total milliseconds
+     */
+    Map<String, Double> getTotalMillisByPhase();
+
+    /**
+     * @return entity type -> mean milliseconds of MAKE phase
+     */
+    Map<String, Double> getMeanMakeMillisByEntityType();
+
+    /**
+     * @return entity type -> number of made entities
+     */
+    Map<String, Long> getEntitiesMade();
+
+    /**
+     * @return entity type -> number of reused entities
+     */
+    Map<String, Long> getEntitiesReused();
+
+    long getConstructorFallbacks();
+
+    long getSetValueFailures();
+
+    void reset();
+}
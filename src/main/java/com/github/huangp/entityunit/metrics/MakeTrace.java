@@ -0,0 +1,153 @@
+package com.github.huangp.entityunit.metrics;
+
+import com.github.huangp.entityunit.util.Settable;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Records what EntityMaker does into a fixed size ring buffer.
+ * <p/>
+ * This replaces debug logging of every made bean and value. Recording only stores references in preallocated
+ * arrays; nothing is formatted until the trace is read. Once full, the oldest entries are overwritten.
+ * <pre>
+ * {@code
+ *
+ * MakeTrace trace = new MakeTrace(1000);
+ * EntityMaker maker = EntityMakerBuilder.builder().listener(trace).build();
+ * // make entities
+ * log.info("last made: {}", trace);
+ * }
+ * </pre>
+ * <b>NOTE:</b> made values are formatted (toString) when the trace is read so they show their current state. The
+ * buffer holds references to recorded values until they are overwritten or cleared.
+ *
+ * @author Patrick Huang
+ */
+public class MakeTrace extends AbstractNoOpMakeListener {
+    private static final Joiner NEW_LINE = Joiner.on("\n");
+
+    private enum Event {
+        PHASE, MADE, REUSED, CONSTRUCTOR_FALLBACK, VALUE_SET, SET_VALUE_FAILED
+    }
+
+    private final int capacity;
+    private final Event[] events;
+    private final Class<?>[] types;
+    private final Object[] subjects;
+    private final Object[] values;
+    private final long[] nanos;
+    // total number of recorded entries
+    private long recorded;
+
+    /**
+     * @param capacity
+     *         number of most recent entries to keep
+     */
+    public MakeTrace(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive: %s", capacity);
+        this.capacity = capacity;
+        events = new Event[capacity];
+        types = new Class<?>[capacity];
+        subjects = new Object[capacity];
+        values = new Object[capacity];
+        nanos = new long[capacity];
+    }
+
+    private synchronized void record(Event event, Class<?> type, Object subject, Object value, long elapsed) {
+        int index = (int) (recorded % capacity);
+        events[index] = event;
+        types[index] = type;
+        subjects[index] = subject;
+        values[index] = value;
+        nanos[index] = elapsed;
+        recorded++;
+    }
+
+    @Override
+    public void phaseCompleted(Phase phase, Class<?> type, long nanos) {
+        record(Event.PHASE, type, phase, null, nanos);
+    }
+
+    @Override
+    public void entityMade(Class<?> entityType) {
+        record(Event.MADE, entityType, null, null, 0);
+    }
+
+    @Override
+    public void entityReused(Class<?> entityType) {
+        record(Event.REUSED, entityType, null, null, 0);
+    }
+
+    @Override
+    public void constructorFallback(Class<?> type, Exception cause) {
+        record(Event.CONSTRUCTOR_FALLBACK, type, null, cause, 0);
+    }
+
+    @Override
+    public void valueSet(Class<?> ownerType, Settable settable, Object value) {
+        record(Event.VALUE_SET, ownerType, settable, value, 0);
+    }
+
+    @Override
+    public void setValueFailed(Class<?> ownerType, Settable settable, Exception cause) {
+        record(Event.SET_VALUE_FAILED, ownerType, settable, cause, 0);
+    }
+
+    /**
+     * @return number of entries recorded since creation or last clear (including overwritten ones)
+     */
+    public synchronized long recorded() {
+        return recorded;
+    }
+
+    /**
+     * @return formatted entries from oldest to newest
+     */
+    public synchronized List<String> lines() {
+        ImmutableList.Builder<String> lines = ImmutableList.builder();
+        long first = Math.max(0, recorded - capacity);
+        for (long i = first; i < recorded; i++) {
+            lines.add(format((int) (i % capacity)));
+        }
+        return lines.build();
+    }
+
+    private String format(int index) {
+        String type = types[index].getSimpleName();
+        switch (events[index]) {
+            case PHASE:
+                return String.format("%s %s %.3fms", subjects[index], type, Histogram.toMillis(nanos[index]));
+            case MADE:
+                return "made " + type;
+            case REUSED:
+                return "reused " + type;
+            case CONSTRUCTOR_FALLBACK:
+                return "fall back to no arg constructor of " + type + ": " + values[index];
+            case VALUE_SET:
+                return "    " + Strings.padEnd(((Settable) subjects[index]).getSimpleName(), 20, ' ') + " <=     "
+                        + values[index];
+            default:
+                return "can not set " + type + "." + ((Settable) subjects[index]).getSimpleName() + ": "
+                        + values[index];
+        }
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < capacity; i++) {
+            events[i] = null;
+            types[i] = null;
+            subjects[i] = null;
+            values[i] = null;
+        }
+        recorded = 0;
+    }
+
+    @Override
+    public String toString() {
+        return NEW_LINE.join(lines());
+    }
+}
@@ -18,6 +18,9 @@ import javax.persistence.Access;
 import javax.persistence.AccessType;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+import javax.persistence.Table;
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
@@ -180,7 +183,9 @@ public final class ClassUtil {
 
     public static <T> T invokeGetter(Object entity, Method method) {
         try {
-            method.setAccessible(true);
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
             T result = (T) method.invoke(entity);
             return result;
         } catch (Exception e) {
@@ -234,7 +239,9 @@ public final class ClassUtil {
 
     static <T> T getFieldValue(Object ownerInstance, Field field) {
         try {
-            field.setAccessible(true);
+            if (!field.isAccessible()) {
+                field.setAccessible(true);
+            }
             return (T) field.get(ownerInstance);
         }
         catch (IllegalAccessException e) {
@@ -252,6 +259,55 @@ public final class ClassUtil {
         }
     }
 
+    /**
+     * Table name of an entity. Uses Table annotation if present otherwise entity name.
+     * <p/>
+     * Subclasses of a SINGLE_TABLE hierarchy (the JPA default) live in the table of the root entity.
+     * Defaulted names follow the JPA default naming. A custom naming strategy of the JPA provider is not seen here, so
+     * give such entities an explicit Table name.
+     *
+     * @param entityType
+     *         entity class
+     * @return table name (qualified by catalog and schema if Table annotation defines them)
+     */
+    public static String getTableName(Class<?> entityType) {
+        Class<?> tableOwner = getTableOwner(entityType);
+        Table table = tableOwner.getAnnotation(Table.class);
+        if (table == null) {
+            return getEntityName(tableOwner);
+        }
+        StringBuilder name = new StringBuilder();
+        if (!Strings.isNullOrEmpty(table.catalog())) {
+            name.append(table.catalog()).append(".");
+        }
+        if (!Strings.isNullOrEmpty(table.schema())) {
+            name.append(table.schema()).append(".");
+        }
+        return name.append(Strings.isNullOrEmpty(table.name()) ? getEntityName(tableOwner) : table.name()).toString();
+    }
+
+    /**
+     * @param entityType
+     *         entity class
+     * @return root entity if the entity is a subclass in a SINGLE_TABLE hierarchy otherwise the entity itself
+     */
+    public static Class<?> getTableOwner(Class<?> entityType) {
+        Class<?> root = entityType;
+        for (Class<?> type = entityType.getSuperclass(); type != null; type = type.getSuperclass()) {
+            if (type.isAnnotationPresent(Entity.class)) {
+                root = type;
+            }
+        }
+        if (root == entityType) {
+            return entityType;
+        }
+        Inheritance inheritance = root.getAnnotation(Inheritance.class);
+        if (inheritance == null || inheritance.strategy() == InheritanceType.SINGLE_TABLE) {
+            return root;
+        }
+        return entityType;
+    }
+
     private static enum InstanceFieldPredicate implements Predicate<Field> {
         PREDICATE;
 
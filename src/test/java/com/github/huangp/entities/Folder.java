@@ -0,0 +1,31 @@
+package com.github.huangp.entities;
+
+import com.google.common.collect.Lists;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Entity;
+import javax.persistence.JoinColumn;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderColumn;
+import java.util.List;
+
+/**
+ * Unidirectional one to many. Note has no reference back to its folder.
+ *
+ * @author Patrick Huang
+ */
+@Entity
+@Access(AccessType.FIELD)
+@Getter
+@Setter
+public class Folder extends Identifier {
+    private String name;
+
+    @OneToMany
+    @OrderColumn(name = "position")
+    @JoinColumn(name = "folder_id")
+    private List<Note> notes = Lists.newArrayList();
+}
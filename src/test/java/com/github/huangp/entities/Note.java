@@ -0,0 +1,22 @@
+package com.github.huangp.entities;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Entity;
+
+/**
+ * @author Patrick Huang
+ * @see Folder
+ */
+@Entity
+@Access(AccessType.FIELD)
+@Getter
+@Setter
+@ToString
+public class Note extends Identifier {
+    private String content;
+}
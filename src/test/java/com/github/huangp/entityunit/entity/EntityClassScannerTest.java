@@ -1,6 +1,10 @@
 package com.github.huangp.entityunit.entity;
 
+import com.github.huangp.entities.LineItem;
+import com.github.huangp.entities.Person;
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.hamcrest.Matchers;
@@ -89,4 +93,18 @@ public class EntityClassScannerTest {
 
         assertThat(result, Matchers.hasSize(10));
     }
+
+    @Test
+    public void requiredOneToOneDoesNotChangeSharedEntityClass() {
+        List<EntityClass> result = Lists.newArrayList(scanner.scan(LineItem.class));
+
+        EntityClass person = Iterables.find(result, new Predicate<EntityClass>() {
+            @Override
+            public boolean apply(EntityClass input) {
+                return input.getType() == Person.class;
+            }
+        });
+        assertThat(person.isRequireNewInstance(), Matchers.is(true));
+        assertThat(EntityClass.from(Person.class).isRequireNewInstance(), Matchers.is(false));
+    }
 }
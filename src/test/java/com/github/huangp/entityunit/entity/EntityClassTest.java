@@ -1,11 +1,20 @@
 package com.github.huangp.entityunit.entity;
 
+import com.github.huangp.entityunit.holder.BeanValueHolder;
+import com.github.huangp.entityunit.maker.BeanMaker;
+import com.github.huangp.entityunit.maker.PreferredValueMakersRegistry;
 import com.github.huangp.entityunit.util.Settable;
+import com.google.common.collect.Iterables;
+import lombok.Getter;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.zanata.model.HProjectIteration;
 import org.zanata.model.HTextFlowTargetReviewComment;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Entity;
+import javax.persistence.Id;
 import javax.persistence.OneToOne;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -54,4 +63,40 @@ public class EntityClassTest {
 
         assertThat(elements, Matchers.<Settable>iterableWithSize(18));
     }
+
+    @Test
+    public void attributeCanOverrideAccessType() {
+        EntityClass entityClass = EntityClass.from(MixedAccessEntity.class);
+        Settable name = Iterables.get(entityClass.getElements(), 2);
+        Settable code = Iterables.get(entityClass.getElements(), 0);
+
+        assertThat(entityClass.getAccessType(), Matchers.equalTo(AccessType.FIELD));
+        assertThat(entityClass.getAccessType(name), Matchers.equalTo(AccessType.FIELD));
+        assertThat(entityClass.getAccessType(code), Matchers.equalTo(AccessType.PROPERTY));
+
+        MixedAccessEntity entity = new BeanMaker<MixedAccessEntity>(MixedAccessEntity.class,
+                new MakeContext(new BeanValueHolder(), new PreferredValueMakersRegistry())).value();
+        assertThat(entity.getName(), Matchers.notNullValue());
+        // written through setter
+        assertThat(entity.getCode(), Matchers.startsWith("code-"));
+    }
+
+    @Entity
+    @Access(AccessType.FIELD)
+    @Getter
+    public static class MixedAccessEntity {
+        @Id
+        private Long id;
+        private String name;
+        private String code;
+
+        @Access(AccessType.PROPERTY)
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = "code-" + code;
+        }
+    }
 }
@@ -4,9 +4,11 @@ import com.github.huangp.entities.Category;
 import com.github.huangp.entities.LineItem;
 import com.github.huangp.entities.Person;
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import javax.persistence.EntityManager;
@@ -15,7 +17,7 @@ import javax.persistence.EntityManager;
  * @author Patrick Huang
  */
 public class EntityCleanerTest {
-    @Mock
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private EntityManager entityManager;
 
     @Before
@@ -24,8 +26,12 @@ public class EntityCleanerTest {
     }
 
     @Test
-    @Ignore("not yet implemented")
     public void canDeleteTableInOrder() {
-        EntityCleaner.deleteAll(entityManager, Category.class, LineItem.class, Person.class);
+        EntityCleaner.deleteAll(entityManager, Category.class, Person.class, LineItem.class);
+
+        InOrder inOrder = Mockito.inOrder(entityManager);
+        inOrder.verify(entityManager).createQuery("delete from LineItem");
+        inOrder.verify(entityManager).createQuery("delete from Category");
+        inOrder.verify(entityManager).createQuery("delete from Person");
     }
 }
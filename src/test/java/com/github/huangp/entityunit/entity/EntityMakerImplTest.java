@@ -7,13 +7,13 @@ import com.github.huangp.entityunit.maker.FixedValueMaker;
 import com.github.huangp.entityunit.maker.IntervalValuesMaker;
 import com.github.huangp.entityunit.maker.RangeValuesMaker;
 import com.github.huangp.entityunit.maker.SkipFieldValueMaker;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.hamcrest.Matchers;
-import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
-import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Answers;
 import org.mockito.Mock;
@@ -37,10 +37,13 @@ import org.zanata.model.HTextFlowTarget;
 import org.zanata.model.type.EntityType;
 
 import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -50,42 +53,30 @@ import static org.hamcrest.MatcherAssert.assertThat;
  */
 @Slf4j
 public class EntityMakerImplTest {
-    private static EntityManagerFactory emFactory;
+    @Rule
+    public TestDatabase database = TestDatabase.deleting(
+            // simple test entities
+            LineItem.class, Category.class, Person.class,
+            // zanata stuff
+            Activity.class,
+            HGlossaryEntry.class, HGlossaryTerm.class,
+            HTextFlowTarget.class, HTextFlow.class, HDocument.class,
+            HLocaleMember.class, HLocale.class,
+            HProjectIteration.class, HProject.class,
+            HPerson.class, HAccount.class
+    );
     private EntityMaker maker;
     private EntityManager entityManager;
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private EntityManager mockEntityManager;
     private TakeCopyCallback copyCallback;
 
-    @BeforeClass
-    public static void setupEmFactory() {
-        emFactory = Persistence.createEntityManagerFactory("zanataTestDatasourcePU", null);
-    }
-
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         maker = EntityMakerBuilder.builder().build();
-        entityManager = emFactory.createEntityManager();
-        entityManager.getTransaction().begin();
-        EntityCleaner.deleteAll(entityManager, Lists.<Class>newArrayList(
-                // simple test entities
-                LineItem.class, Category.class, Person.class,
-                // zanata stuff
-                Activity.class,
-                HGlossaryEntry.class, HGlossaryTerm.class,
-                HTextFlowTarget.class, HTextFlow.class, HDocument.class,
-                HLocaleMember.class, HLocale.class,
-                HProjectIteration.class, HProject.class,
-                HPerson.class, HAccount.class
-        ));
+        entityManager = database.getEntityManager();
         copyCallback = new TakeCopyCallback();
-        entityManager.getTransaction().commit();
-    }
-
-    @After
-    public void tearDown() {
-        entityManager.close();
     }
 
     @Test
@@ -235,6 +226,40 @@ public class EntityMakerImplTest {
         assertThat(result.get(0), Matchers.equalTo(two));
     }
 
+    @Test
+    public void canDeleteInAnyOrder() {
+        entityManager.getTransaction().begin();
+        maker.makeAndPersist(entityManager, HTextFlowTarget.class);
+        entityManager.getTransaction().commit();
+
+        entityManager.getTransaction().begin();
+        EntityCleaner.deleteAll(entityManager, HProject.class, HPerson.class, HLocale.class, HProjectIteration.class,
+                HDocument.class, HTextFlow.class, HTextFlowTarget.class);
+        entityManager.getTransaction().commit();
+
+        Long numOfProjects = entityManager.createQuery("select count(*) from HProject", Long.class).getSingleResult();
+        Long numOfTargets = entityManager.createQuery("select count(*) from HTextFlowTarget", Long.class).getSingleResult();
+        assertThat(numOfProjects, Matchers.equalTo(0L));
+        assertThat(numOfTargets, Matchers.equalTo(0L));
+    }
+
+    @Test
+    public void canTruncateTables() {
+        entityManager.getTransaction().begin();
+        maker.makeAndPersist(entityManager, HTextFlowTarget.class);
+        entityManager.getTransaction().commit();
+
+        entityManager.getTransaction().begin();
+        EntityCleaner.truncateAll(entityManager, TruncateDialect.H2, HProject.class, HPerson.class, HLocale.class,
+                HProjectIteration.class, HDocument.class, HTextFlow.class, HTextFlowTarget.class);
+        entityManager.getTransaction().commit();
+
+        Long numOfProjects = entityManager.createQuery("select count(*) from HProject", Long.class).getSingleResult();
+        Long numOfTargets = entityManager.createQuery("select count(*) from HTextFlowTarget", Long.class).getSingleResult();
+        assertThat(numOfProjects, Matchers.equalTo(0L));
+        assertThat(numOfTargets, Matchers.equalTo(0L));
+    }
+
     @Test
     public void canFixId() {
         entityManager.getTransaction().begin();
@@ -397,6 +422,180 @@ public class EntityMakerImplTest {
         assertThat(result.get(1).getNumber(), Matchers.equalTo(1));
     }
 
+    @Test
+    public void canMakeAndPersistMany() {
+        maker = EntityMakerBuilder.builder().batchSize(2).build();
+
+        entityManager.getTransaction().begin();
+        Iterable<LineItem> items = maker.makeAndPersistMany(entityManager, LineItem.class, 5);
+        entityManager.getTransaction().commit();
+
+        Long numOfItems = entityManager.createQuery("select count(*) from LineItem", Long.class).getSingleResult();
+        Long numOfCategories = entityManager.createQuery("select count(*) from Category", Long.class).getSingleResult();
+        Long numOfPersons = entityManager.createQuery("select count(*) from Person", Long.class).getSingleResult();
+        assertThat(numOfItems, Matchers.equalTo(5L));
+        assertThat(numOfCategories, Matchers.equalTo(1L));
+        // required OneToOne owner is made for each item
+        assertThat(numOfPersons, Matchers.equalTo(5L));
+
+        List<LineItem> result = Lists.newArrayList(items);
+        assertThat(result, Matchers.hasSize(5));
+        for (LineItem item : result) {
+            assertThat(item.getId(), Matchers.notNullValue());
+            assertThat(item.getCategory(), Matchers.sameInstance(result.get(0).getCategory()));
+        }
+
+        entityManager.clear();
+        List<LineItem> ordered = entityManager.createQuery("from LineItem it order by it.number", LineItem.class).getResultList();
+        assertThat(ordered.get(0).getNumber(), Matchers.equalTo(0));
+        assertThat(ordered.get(4).getNumber(), Matchers.equalTo(4));
+    }
+
+    @Test
+    public void makeAndPersistManyWillNotPopulateInverseSideOfReusedEntities() {
+        entityManager.getTransaction().begin();
+        List<HProjectIteration> iterations = Lists.newArrayList(
+                maker.makeAndPersistMany(entityManager, HProjectIteration.class, 3));
+        entityManager.getTransaction().commit();
+
+        assertThat(iterations, Matchers.hasSize(3));
+        HProject project = iterations.get(0).getProject();
+        assertThat(iterations.get(2).getProject(), Matchers.sameInstance(project));
+        // project is made with the first iteration. After that its mappedBy side is left alone
+        assertThat(project.getProjectIterations(), Matchers.contains(iterations.get(0)));
+    }
+
+    @Test
+    public void canMakeLazily() {
+        Iterator<LineItem> items = maker.makeLazily(LineItem.class);
+
+        List<LineItem> result = Lists.newArrayList(Iterators.limit(items, 3));
+        assertThat(result, Matchers.hasSize(3));
+        Category category = result.get(0).getCategory();
+        for (LineItem item : result) {
+            assertThat(item.getId(), Matchers.nullValue());
+            assertThat(item.getCategory(), Matchers.sameInstance(category));
+        }
+        // reused category does not hold made items
+        assertThat(category.getLineItems(), Matchers.contains(result.get(0)));
+        assertThat(items.hasNext(), Matchers.is(true));
+    }
+
+    @Test
+    public void canMakeAndPersistLazily() {
+        maker = EntityMakerBuilder.builder().batchSize(2).build();
+
+        entityManager.getTransaction().begin();
+        Iterator<LineItem> items = Iterators.limit(maker.makeAndPersistLazily(entityManager, LineItem.class), 5);
+        while (items.hasNext()) {
+            assertThat(items.next().getId(), Matchers.notNullValue());
+        }
+        entityManager.getTransaction().commit();
+
+        Long numOfItems = entityManager.createQuery("select count(*) from LineItem", Long.class).getSingleResult();
+        Long numOfCategories = entityManager.createQuery("select count(*) from Category", Long.class).getSingleResult();
+        Long numOfOrphans = entityManager.createQuery("select count(*) from LineItem where category is null", Long.class)
+                .getSingleResult();
+        assertThat(numOfItems, Matchers.equalTo(5L));
+        assertThat(numOfCategories, Matchers.equalTo(1L));
+        assertThat(numOfOrphans, Matchers.equalTo(0L));
+    }
+
+    @Test
+    public void canFlushAndDetachByPolicy() {
+        maker = EntityMakerBuilder.builder().flushPolicy(FlushPolicy.everyCalls(3)).build();
+
+        entityManager.getTransaction().begin();
+        List<LineItem> items = Lists.newArrayList();
+        for (int i = 0; i < 7; i++) {
+            items.add(maker.makeAndPersist(entityManager, LineItem.class));
+        }
+        entityManager.getTransaction().commit();
+
+        assertThat(entityManager.contains(items.get(0)), Matchers.is(false));
+        assertThat(entityManager.contains(items.get(4)), Matchers.is(false));
+        assertThat(entityManager.contains(items.get(6)), Matchers.is(true));
+        // reused category is replaced with a managed instance of the same row
+        assertThat(entityManager.contains(items.get(6).getCategory()), Matchers.is(true));
+        assertThat(entityManager.contains(items.get(0).getCategory()), Matchers.is(false));
+        assertThat(items.get(6).getCategory().getId(), Matchers.equalTo(items.get(0).getCategory().getId()));
+
+        entityManager.clear();
+        Long numOfItems = entityManager.createQuery("select count(*) from LineItem", Long.class).getSingleResult();
+        Long numOfOrphans = entityManager.createQuery("select count(*) from LineItem where category is null", Long.class)
+                .getSingleResult();
+        assertThat(numOfItems, Matchers.equalTo(7L));
+        assertThat(numOfOrphans, Matchers.equalTo(0L));
+    }
+
+    @Test
+    public void canFanOutOneToManyCollections() {
+        maker = EntityMakerBuilder.builder()
+                .fanOut(HDocument.class, "textFlows", 3)
+                .fanOut(HProject.class, "projectIterations", 2)
+                .build();
+
+        entityManager.getTransaction().begin();
+        HDocument document = maker.makeAndPersist(entityManager, HDocument.class);
+        HProject project = maker.makeAndPersist(entityManager, HProject.class);
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+
+        assertThat(document.getTextFlows(), Matchers.hasSize(3));
+        List<Integer> positions = entityManager.createQuery(
+                "select tf.pos from HTextFlow tf where tf.document.id = :id order by tf.id", Integer.class)
+                .setParameter("id", document.getId()).getResultList();
+        assertThat(positions, Matchers.contains(0, 1, 2));
+        Long numOfIterations = entityManager.createQuery(
+                "select count(*) from HProjectIteration where project.id = :id", Long.class)
+                .setParameter("id", project.getId()).getSingleResult();
+        assertThat(numOfIterations, Matchers.equalTo(2L));
+    }
+
+    @Test
+    public void canMakeAndPersistConcurrently() throws Exception {
+        entityManager.getTransaction().begin();
+        final Person sharedPerson = maker.makeAndPersist(entityManager, Person.class);
+        entityManager.getTransaction().commit();
+
+        final EntityMaker concurrentMaker = EntityMakerBuilder.builder()
+                .reuseEntity(sharedPerson)
+                .concurrent()
+                .build();
+        int numOfThreads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        List<Future<List<LineItem>>> futures = Lists.newArrayList();
+        for (int i = 0; i < numOfThreads; i++) {
+            futures.add(executor.submit(new Callable<List<LineItem>>() {
+                @Override
+                public List<LineItem> call() throws Exception {
+                    EntityManager em = TestDatabase.entityManagerFactory().createEntityManager();
+                    try {
+                        em.getTransaction().begin();
+                        LineItem one = concurrentMaker.makeAndPersist(em, LineItem.class);
+                        LineItem two = concurrentMaker.makeAndPersist(em, LineItem.class);
+                        em.getTransaction().commit();
+                        return Lists.newArrayList(one, two);
+                    } finally {
+                        em.close();
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+
+        for (Future<List<LineItem>> future : futures) {
+            List<LineItem> items = future.get(30, TimeUnit.SECONDS);
+            // each thread reuses its own category
+            assertThat(items.get(0).getCategory(), Matchers.sameInstance(items.get(1).getCategory()));
+            assertThat(items.get(0).getCategory().getCategoryOwner(), Matchers.sameInstance(sharedPerson));
+        }
+        Long numOfItems = entityManager.createQuery("select count(*) from LineItem", Long.class).getSingleResult();
+        Long numOfCategories = entityManager.createQuery("select count(*) from Category", Long.class).getSingleResult();
+        assertThat(numOfItems, Matchers.equalTo(8L));
+        assertThat(numOfCategories, Matchers.equalTo(4L));
+    }
+
     @Test
     public void testFixNameAndSlug() {
         EntityMaker service = EntityMakerBuilder.builder()
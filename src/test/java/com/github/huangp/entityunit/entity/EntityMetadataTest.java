@@ -0,0 +1,52 @@
+package com.github.huangp.entityunit.entity;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.zanata.model.HAccount;
+import org.zanata.model.HDocument;
+import org.zanata.model.HLocale;
+import org.zanata.model.HLocaleMember;
+import org.zanata.model.HPerson;
+import org.zanata.model.HProject;
+import org.zanata.model.HProjectIteration;
+import org.zanata.model.HTextFlow;
+import org.zanata.model.HTextFlowTarget;
+
+import javax.persistence.EntityManager;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class EntityMetadataTest {
+    @Rule
+    public TestDatabase database = TestDatabase.deleting(
+            HTextFlowTarget.class, HTextFlow.class, HDocument.class,
+            HLocaleMember.class, HLocale.class,
+            HProjectIteration.class, HProject.class,
+            HPerson.class, HAccount.class
+    );
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        entityManager = database.getEntityManager();
+    }
+
+    @Test
+    public void willNotScanClassesAfterPreWarm() {
+        EntityMetadata.preWarm(TestDatabase.entityManagerFactory());
+        long entityClassMisses = EntityMetadata.entityClassStats().missCount();
+        long scanMisses = EntityMetadata.scanStats().missCount();
+
+        entityManager.getTransaction().begin();
+        EntityMakerBuilder.builder().build().makeAndPersist(entityManager, HTextFlowTarget.class);
+        entityManager.getTransaction().commit();
+
+        assertThat(EntityMetadata.entityClassStats().missCount(), Matchers.equalTo(entityClassMisses));
+        assertThat(EntityMetadata.scanStats().missCount(), Matchers.equalTo(scanMisses));
+        assertThat(EntityMetadata.scanStats().hitCount(), Matchers.greaterThan(0L));
+    }
+}
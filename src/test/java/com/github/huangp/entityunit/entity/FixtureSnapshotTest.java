@@ -0,0 +1,99 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entities.Folder;
+import com.github.huangp.entities.Note;
+import com.google.common.collect.ImmutableList;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.zanata.model.HAccount;
+import org.zanata.model.HDocument;
+import org.zanata.model.HLocale;
+import org.zanata.model.HLocaleMember;
+import org.zanata.model.HPerson;
+import org.zanata.model.HProject;
+import org.zanata.model.HProjectIteration;
+import org.zanata.model.HTextFlow;
+import org.zanata.model.HTextFlowTarget;
+
+import javax.persistence.EntityManager;
+
+import static com.github.huangp.entityunit.entity.TestDatabase.CONNECTION_OF;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class FixtureSnapshotTest {
+    @Rule
+    public TestDatabase database = TestDatabase.deleting(
+            HTextFlowTarget.class, HTextFlow.class, HDocument.class,
+            HLocaleMember.class, HLocale.class,
+            HProjectIteration.class, HProject.class,
+            HPerson.class, HAccount.class,
+            Note.class, Folder.class
+    );
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        entityManager = database.getEntityManager();
+    }
+
+    @Test
+    public void canRestoreSnapshotOfMadeEntities() {
+        Class[] entityClasses = { HProject.class, HPerson.class, HLocale.class, HProjectIteration.class,
+                HDocument.class, HTextFlow.class, HTextFlowTarget.class };
+        entityManager.getTransaction().begin();
+        // not made in the recorded session
+        HTextFlowTarget other = EntityMakerBuilder.builder().build().makeAndPersist(entityManager, HTextFlowTarget.class);
+        FixtureSnapshot.Recorder recorder = FixtureSnapshot.recorder();
+        HTextFlowTarget target = EntityMakerBuilder.builder().build().makeAndPersist(entityManager, HTextFlowTarget.class, recorder);
+        FixtureSnapshot snapshot = recorder.take(entityManager, CONNECTION_OF);
+        entityManager.getTransaction().commit();
+
+        entityManager.getTransaction().begin();
+        EntityCleaner.truncateAll(entityManager, TruncateDialect.H2, entityClasses);
+        // as if it's a fresh database
+        TruncateDialect.H2.restartIdentity(entityManager, "HTextFlowTarget", "id", 1);
+        snapshot.restore(entityManager, CONNECTION_OF, TruncateDialect.H2);
+        entityManager.getTransaction().commit();
+
+        HTextFlowTarget restored = entityManager.find(HTextFlowTarget.class, target.getId());
+        assertThat(restored.getContents(), Matchers.equalTo(target.getContents()));
+        assertThat(restored.getTextFlow().getId(), Matchers.equalTo(target.getTextFlow().getId()));
+        assertThat(entityManager.find(HTextFlowTarget.class, other.getId()), Matchers.nullValue());
+
+        // identity continues after restored rows
+        entityManager.getTransaction().begin();
+        HTextFlowTarget next = EntityMakerBuilder.builder().build().makeAndPersist(entityManager, HTextFlowTarget.class);
+        entityManager.getTransaction().commit();
+        assertThat(next.getId(), Matchers.greaterThan(target.getId()));
+    }
+
+    @Test
+    public void canRestoreUnidirectionalOneToMany() {
+        Folder folder = new Folder();
+        Note note = new Note();
+        folder.getNotes().add(note);
+        entityManager.getTransaction().begin();
+        entityManager.persist(folder);
+        entityManager.persist(note);
+        entityManager.flush();
+        FixtureSnapshot.Recorder recorder = FixtureSnapshot.recorder();
+        // note has no reference to folder. Its foreign key is mapped on folder's side only
+        recorder.afterPersist(entityManager, ImmutableList.<Object>of(folder, note));
+        FixtureSnapshot snapshot = recorder.take(entityManager, CONNECTION_OF);
+        entityManager.getTransaction().commit();
+
+        entityManager.getTransaction().begin();
+        EntityCleaner.truncateAll(entityManager, TruncateDialect.H2, Note.class, Folder.class);
+        snapshot.restore(entityManager, CONNECTION_OF, TruncateDialect.H2);
+        entityManager.getTransaction().commit();
+
+        Folder restored = entityManager.find(Folder.class, folder.getId());
+        assertThat(restored.getNotes(), Matchers.hasSize(1));
+        assertThat(restored.getNotes().get(0).getId(), Matchers.equalTo(note.getId()));
+    }
+}
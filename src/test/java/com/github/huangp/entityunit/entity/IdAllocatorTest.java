@@ -0,0 +1,74 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entities.Category;
+import com.github.huangp.entities.LineItem;
+import com.github.huangp.entities.Person;
+import com.google.common.collect.Lists;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.github.huangp.entityunit.entity.TestDatabase.CONNECTION_OF;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class IdAllocatorTest {
+    @Rule
+    public TestDatabase database = TestDatabase.deleting(
+            LineItem.class, Category.class, Person.class
+    );
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        entityManager = database.getEntityManager();
+    }
+
+    @Test
+    public void canAllocateIdsFromSequenceBeforeInsert() {
+        entityManager.getTransaction().begin();
+        entityManager.createNativeQuery("CREATE SEQUENCE IF NOT EXISTS TEST_ID_SEQ").executeUpdate();
+        IdAllocator allocator = IdAllocator.fromSequence("SELECT NEXT VALUE FOR TEST_ID_SEQ", 1000);
+        EntityMaker maker = EntityMakerBuilder.builder()
+                .jdbcBatchInsert(CONNECTION_OF)
+                .idAllocator(allocator)
+                .build();
+
+        Long reserved = (Long) allocator.nextId(entityManager, LineItem.class);
+        Iterable<LineItem> made = maker.makeAndPersistMany(entityManager, LineItem.class, 3);
+        entityManager.getTransaction().commit();
+
+        List<Long> ids = Lists.newArrayList();
+        for (LineItem item : made) {
+            ids.add(item.getId());
+        }
+        assertThat(reserved % 1000, Matchers.equalTo(0L));
+        assertThat(ids, Matchers.contains(reserved + 1, reserved + 2, reserved + 3));
+    }
+
+    @Test
+    public void willSkipIdsReservedOutsideCurrentBlock() {
+        entityManager.getTransaction().begin();
+        entityManager.createNativeQuery("CREATE SEQUENCE IF NOT EXISTS TEST_RESERVED_ID_SEQ").executeUpdate();
+        IdAllocator allocator = IdAllocator.fromSequence("SELECT NEXT VALUE FOR TEST_RESERVED_ID_SEQ", 10);
+        EntityTable table = EntityTable.of(LineItem.class);
+
+        long first = (Long) allocator.nextId(entityManager, LineItem.class);
+        // i.e. wanted ids in the next block
+        allocator.reserve(entityManager, table, first + 12);
+        allocator.reserve(entityManager, table, first + 13);
+        List<Long> ids = Lists.newArrayList();
+        for (int i = 0; i < 12; i++) {
+            ids.add((Long) allocator.nextId(entityManager, LineItem.class));
+        }
+        entityManager.getTransaction().commit();
+
+        assertThat(ids.subList(8, 12), Matchers.contains(first + 9, first + 10, first + 11, first + 14));
+    }
+}
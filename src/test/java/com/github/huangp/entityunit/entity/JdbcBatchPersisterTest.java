@@ -0,0 +1,141 @@
+package com.github.huangp.entityunit.entity;
+
+import com.github.huangp.entities.Category;
+import com.github.huangp.entities.Folder;
+import com.github.huangp.entities.LineItem;
+import com.github.huangp.entities.Note;
+import com.github.huangp.entities.Person;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.github.huangp.entityunit.entity.TestDatabase.CONNECTION_OF;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class JdbcBatchPersisterTest {
+    @Rule
+    public TestDatabase database = TestDatabase.deleting(
+            LineItem.class, Category.class, Person.class, Note.class, Folder.class
+    );
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        entityManager = database.getEntityManager();
+    }
+
+    @Test
+    public void canBatchInsertWithJdbc() {
+        EntityMaker maker = EntityMakerBuilder.builder()
+                .batchSize(2)
+                .jdbcBatchInsert(CONNECTION_OF)
+                .build();
+
+        entityManager.getTransaction().begin();
+        Iterable<LineItem> made = maker.makeAndPersistMany(entityManager, LineItem.class, 5);
+        entityManager.getTransaction().commit();
+
+        assertThat(made, Matchers.<LineItem>iterableWithSize(5));
+        Long numOfCategories = entityManager.createQuery("select count(*) from Category", Long.class).getSingleResult();
+        Long numOfOrphans = entityManager.createQuery("select count(*) from LineItem where category is null", Long.class)
+                .getSingleResult();
+        List<Integer> numbers = entityManager.createQuery("select it.number from LineItem it order by it.id",
+                Integer.class).getResultList();
+        assertThat(numOfCategories, Matchers.equalTo(1L));
+        assertThat(numOfOrphans, Matchers.equalTo(0L));
+        assertThat(numbers, Matchers.contains(0, 1, 2, 3, 4));
+    }
+
+    @Test
+    public void canMakeWithFixedIds() {
+        EntityMaker maker = EntityMakerBuilder.builder()
+                .jdbcBatchInsert(CONNECTION_OF)
+                .fixIds(Category.class, 500L)
+                .fixIds(LineItem.class, 100L, 101L)
+                .build();
+
+        entityManager.getTransaction().begin();
+        Iterable<LineItem> made = maker.makeAndPersistMany(entityManager, LineItem.class, 3);
+        entityManager.getTransaction().commit();
+
+        List<Long> ids = Lists.newArrayList();
+        for (LineItem item : made) {
+            ids.add(item.getId());
+            assertThat(item.getCategory().getId(), Matchers.equalTo(500L));
+        }
+        // generated id continues after wanted ids
+        assertThat(ids, Matchers.contains(100L, 101L, 102L));
+    }
+
+    @Test
+    public void willInsertParentBeforeChildrenOfUnidirectionalOneToMany() {
+        JdbcBatchPersister persister = new JdbcBatchPersister(CONNECTION_OF, FixedIds.NONE, IdAllocator.fromMaxId());
+        Folder folder = new Folder();
+        Note note = new Note();
+        folder.getNotes().add(note);
+
+        entityManager.getTransaction().begin();
+        // note has no reference to folder. The foreign key comes from folder's side only
+        persister.persist(entityManager, ImmutableList.<Object>of(folder, note));
+        persister.write(entityManager);
+        entityManager.getTransaction().commit();
+
+        Object folderId = entityManager.createNativeQuery("select folder_id from Note where id = " + note.getId())
+                .getSingleResult();
+        assertThat(((Number) folderId).longValue(), Matchers.equalTo(folder.getId()));
+    }
+
+    @Test
+    public void willOnlyLookAtNewChildrenOfReusedParent() {
+        JdbcBatchPersister persister = new JdbcBatchPersister(CONNECTION_OF, FixedIds.NONE, IdAllocator.fromMaxId());
+        CountingList<Note> notes = new CountingList<Note>();
+        Folder folder = new Folder();
+        folder.setNotes(notes);
+
+        entityManager.getTransaction().begin();
+        persister.persist(entityManager, ImmutableList.<Object>of(folder));
+        persister.write(entityManager);
+        for (int i = 0; i < 100; i++) {
+            Note note = new Note();
+            notes.add(note);
+            // reused folder is in every call
+            persister.persist(entityManager, ImmutableList.<Object>of(folder, note));
+        }
+        persister.write(entityManager);
+        entityManager.getTransaction().commit();
+
+        assertThat(notes.visited, Matchers.equalTo(100));
+        List<?> positions = entityManager.createNativeQuery("select position from Note where folder_id = "
+                + folder.getId() + " order by id").getResultList();
+        assertThat(positions, Matchers.hasSize(100));
+        assertThat(positions.get(99), Matchers.<Object>equalTo(99));
+    }
+
+    // counts elements read from the list
+    private static class CountingList<E> extends ArrayList<E> {
+        private int visited;
+
+        @Override
+        public E get(int index) {
+            visited++;
+            return super.get(index);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            visited += size();
+            return super.iterator();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.huangp.entityunit.entity;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Lists;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.zanata.model.HAccount;
+import org.zanata.model.HAccountRole;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Id;
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
+import java.util.List;
+import java.util.Set;
+
+import static com.github.huangp.entityunit.entity.TestDatabase.CONNECTION_OF;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class ManyToManyWiringTest {
+    @Rule
+    public TestDatabase database = TestDatabase.deleting(
+            HAccount.class, HAccountRole.class
+    );
+    private EntityMaker maker = EntityMakerBuilder.builder().build();
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        entityManager = database.getEntityManager();
+    }
+
+    @Test
+    public void canWireManyToManyInBulk() {
+        entityManager.getTransaction().begin();
+        List<HAccountRole> roles = Lists.newArrayList(maker.makeAndPersistMany(entityManager, HAccountRole.class, 4));
+        List<HAccount> accounts = Lists.newArrayList(maker.makeAndPersistMany(entityManager, HAccount.class, 3));
+        ManyToManyWiring wiring = ManyToManyWiring.of(HAccount.class, "roles", CONNECTION_OF);
+        int wired = wiring.wire(entityManager, accounts, roles, 0.5);
+        wired += wiring.wire(entityManager, ImmutableMultimap.of(accounts.get(0), roles.get(3)));
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+
+        assertThat(wired, Matchers.equalTo(7));
+        assertThat(entityManager.find(HAccount.class, accounts.get(0).getId()).getRoles(), Matchers.hasSize(3));
+        assertThat(entityManager.find(HAccount.class, accounts.get(1).getId()).getRoles(), Matchers.hasSize(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void willRejectEntitiesOfTheWrongSide() {
+        entityManager.getTransaction().begin();
+        List<HAccountRole> roles = Lists.newArrayList(maker.makeAndPersistMany(entityManager, HAccountRole.class, 1));
+        List<HAccount> accounts = Lists.newArrayList(maker.makeAndPersistMany(entityManager, HAccount.class, 1));
+        try {
+            ManyToManyWiring.of(HAccount.class, "roles", CONNECTION_OF).wire(entityManager, roles, accounts, 1);
+        } finally {
+            entityManager.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    public void joinTableWithDefaultedNamesIsSkippedByPersister() {
+        assertThat(JoinTableMapping.owningSidesOf(DefaultedJoinTable.class), Matchers.empty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void joinTableWithDefaultedNamesCanNotBeWired() {
+        ManyToManyWiring.of(DefaultedJoinTable.class, "roles", CONNECTION_OF);
+    }
+
+    // not an Entity so the test persistence unit won't pick it up
+    static class DefaultedJoinTable {
+        @Id
+        private Long id;
+        @ManyToMany
+        @JoinTable
+        private Set<HAccountRole> roles;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.huangp.entityunit.entity;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.rules.ExternalResource;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * In-memory database of the test persistence unit for database backed tests.
+ * <p/>
+ * The entity manager factory is created once and shared by all tests. Before each test the rows of given entity types
+ * are deleted and a new entity manager is opened. After the test its active transaction is rolled back and it is
+ * closed.
+ * <pre>
+ * {@code
+ *
+ * @Rule
+ * public TestDatabase database = TestDatabase.deleting(LineItem.class, Category.class, Person.class);
+ * }
+ * </pre>
+ *
+ * @author Patrick Huang
+ */
+class TestDatabase extends ExternalResource {
+    static final Function<EntityManager, Connection> CONNECTION_OF =
+            new Function<EntityManager, Connection>() {
+                @Override
+                public Connection apply(EntityManager input) {
+                    return ((SessionImplementor) input.unwrap(Session.class)).connection();
+                }
+            };
+    private static EntityManagerFactory emFactory;
+
+    private final List<Class> entityTypes;
+    @Getter
+    private EntityManager entityManager;
+
+    private TestDatabase(List<Class> entityTypes) {
+        this.entityTypes = entityTypes;
+    }
+
+    /**
+     * @param entityTypes
+     *         entity types to clean before each test (referencing types first)
+     * @return rule
+     */
+    static TestDatabase deleting(Class... entityTypes) {
+        return new TestDatabase(ImmutableList.copyOf(entityTypes));
+    }
+
+    static synchronized EntityManagerFactory entityManagerFactory() {
+        if (emFactory == null) {
+            emFactory = Persistence.createEntityManagerFactory("zanataTestDatasourcePU", null);
+        }
+        return emFactory;
+    }
+
+    @Override
+    protected void before() {
+        entityManager = entityManagerFactory().createEntityManager();
+        entityManager.getTransaction().begin();
+        EntityCleaner.deleteAll(entityManager, entityTypes);
+        entityManager.getTransaction().commit();
+    }
+
+    @Override
+    protected void after() {
+        // a failed test must not leave locks behind for the next tests on the shared database
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().rollback();
+        }
+        entityManager.close();
+    }
+}
@@ -6,6 +6,7 @@ import com.github.huangp.beans.Toy;
 import com.github.huangp.entityunit.entity.MakeContext;
 import com.github.huangp.entityunit.holder.BeanValueHolder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hamcrest.Matchers;
@@ -56,6 +57,24 @@ public class BeanMakerTest {
 
     }
 
+    @Test
+    public void seededContextMakesSameValues() {
+        MakeContext one = new MakeContext(new BeanValueHolder(), new PreferredValueMakersRegistry(),
+                ValueGenerator.seeded(42L));
+        MakeContext other = new MakeContext(new BeanValueHolder(), new PreferredValueMakersRegistry(),
+                ValueGenerator.seeded(42L));
+
+        for (int i = 0; i < 3; i++) {
+            HProject project = new BeanMaker<HProject>(HProject.class, one).value();
+            HProject sameProject = new BeanMaker<HProject>(HProject.class, other).value();
+
+            assertThat(project.getSlug(), Matchers.equalTo(sameProject.getSlug()));
+            assertThat(project.getName(), Matchers.equalTo(sameProject.getName()));
+            assertThat(project.getDescription(), Matchers.equalTo(sameProject.getDescription()));
+            assertThat(project.getCreationDate(), Matchers.equalTo(sameProject.getCreationDate()));
+        }
+    }
+
     @Test
     public void canMakeEntity() {
         BeanMaker<HProject> maker = new BeanMaker<HProject>(HProject.class, context);
@@ -151,6 +170,116 @@ public class BeanMakerTest {
         assertThat(testEntity.email, Matchers.endsWith("@nowhere.org"));
     }
 
+    @Test
+    public void willUsePublicSetterAndConvertValue() {
+        BeanMaker<PropertyBean> maker = new BeanMaker<PropertyBean>(PropertyBean.class, context);
+
+        PropertyBean bean = maker.value();
+
+        assertThat(bean.getCount(), Matchers.notNullValue()); // integer value converted to long
+        assertThat(bean.getReadOnly(), Matchers.nullValue()); // protected setter is ignored
+        assertThat(maker.value(), Matchers.not(Matchers.sameInstance(bean)));
+    }
+
+    @Test
+    public void willRememberFailingConstructor() {
+        FailingConstructorBean.attempts = 0;
+        BeanMaker<FailingConstructorBean> maker =
+                new BeanMaker<FailingConstructorBean>(FailingConstructorBean.class, context);
+
+        assertThat(maker.value().getName(), Matchers.notNullValue()); // populated after no arg constructor
+        maker.value();
+        assertThat(FailingConstructorBean.attempts, Matchers.equalTo(1));
+
+        // preferred makers of another registry may make the constructor work
+        new BeanMaker<FailingConstructorBean>(FailingConstructorBean.class,
+                new MakeContext(new BeanValueHolder(), new PreferredValueMakersRegistry())).value();
+        assertThat(FailingConstructorBean.attempts, Matchers.equalTo(2));
+    }
+
+    @Test
+    public void willRetryFailingConstructorAfterRegistryChanges() {
+        FixableConstructorBean.attempts = 0;
+        BeanMaker<FixableConstructorBean> maker =
+                new BeanMaker<FixableConstructorBean>(FixableConstructorBean.class, context);
+        maker.value();
+        maker.value();
+        assertThat(FixableConstructorBean.attempts, Matchers.equalTo(1));
+
+        // a later constructor parameter maker fixes the constructor
+        context.getPreferredValueMakers().addConstructorParameterMaker(FixableConstructorBean.class, 0,
+                FixedValueMaker.fix("fixed"));
+
+        assertThat(maker.value().getName(), Matchers.equalTo("fixed"));
+        assertThat(FixableConstructorBean.attempts, Matchers.equalTo(2));
+    }
+
+    @Test
+    public void willResolveMakersAgainAfterRegistryChanges() {
+        BeanMaker<PropertyBean> maker = new BeanMaker<PropertyBean>(PropertyBean.class, context);
+        Long first = maker.value().getCount();
+
+        assertThat(maker.value().getCount(), Matchers.not(Matchers.equalTo(first))); // cached maker keeps its sequence
+
+        context.getPreferredValueMakers().addFieldOrPropertyMaker(PropertyBean.class, "count",
+                FixedValueMaker.fix(99L));
+
+        assertThat(maker.value().getCount(), Matchers.equalTo(99L));
+    }
+
+    @Getter
+    public static class FailingConstructorBean {
+        private static int attempts;
+        private String name;
+
+        public FailingConstructorBean() {
+        }
+
+        public FailingConstructorBean(String name) {
+            attempts++;
+            throw new IllegalArgumentException("always fail");
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Getter
+    public static class FixableConstructorBean {
+        private static int attempts;
+        private String name;
+
+        public FixableConstructorBean() {
+        }
+
+        public FixableConstructorBean(String name) {
+            attempts++;
+            if (!"fixed".equals(name)) {
+                throw new IllegalArgumentException("only works with fixed name");
+            }
+            this.name = name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Getter
+    public static class PropertyBean {
+        private Long count;
+        private String readOnly;
+
+        public void setCount(Long count) {
+            this.count = count;
+        }
+
+        protected void setReadOnly(String readOnly) {
+            this.readOnly = readOnly;
+        }
+    }
+
     @Entity
     @NoArgsConstructor
     @Data
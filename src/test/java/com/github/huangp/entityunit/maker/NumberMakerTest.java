@@ -0,0 +1,90 @@
+package com.github.huangp.entityunit.maker;
+
+import com.github.huangp.entityunit.util.Settable;
+import com.github.huangp.entityunit.util.SettableField;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.math.BigDecimal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class NumberMakerTest {
+
+    private static Settable field(String name) throws NoSuchFieldException {
+        return SettableField.from(Numbers.class, Numbers.class.getDeclaredField(name));
+    }
+
+    @Test
+    public void valueIsOfDeclaredType() throws NoSuchFieldException {
+        ValueGenerator generator = ValueGenerator.seeded(1L);
+
+        assertThat(NumberMaker.from(field("longValue"), generator).value(), Matchers.<Number>equalTo(1L));
+        assertThat(NumberMaker.from(field("shortValue"), generator).value(), Matchers.<Number>equalTo((short) 1));
+        assertThat(NumberMaker.from(field("decimalValue"), generator).value(),
+                Matchers.<Number>equalTo(BigDecimal.ONE));
+    }
+
+    @Test
+    public void eachFieldHasItsOwnSequence() throws NoSuchFieldException {
+        ValueGenerator generator = ValueGenerator.seeded(1L);
+        Maker<Number> longMaker = NumberMaker.from(field("longValue"), generator);
+        Maker<Number> sameFieldMaker = NumberMaker.from(field("longValue"), generator);
+        Maker<Number> shortMaker = NumberMaker.from(field("shortValue"), generator);
+
+        assertThat(longMaker.value(), Matchers.<Number>equalTo(1L));
+        assertThat(sameFieldMaker.value(), Matchers.<Number>equalTo(2L));
+        assertThat(shortMaker.value(), Matchers.<Number>equalTo((short) 1));
+    }
+
+    @Test
+    public void valueIsWithinMinAndMax() throws NoSuchFieldException {
+        Maker<Number> maker = NumberMaker.from(field("rangedValue"), ValueGenerator.seeded(1L));
+
+        assertThat(maker.value(), Matchers.<Number>equalTo(10));
+        assertThat(maker.value(), Matchers.<Number>equalTo(11));
+        assertThat(maker.value(), Matchers.<Number>equalTo(12));
+        // wrap around
+        assertThat(maker.value(), Matchers.<Number>equalTo(10));
+    }
+
+    @Test
+    public void minBeyondDeclaredTypeIsNarrowedToIt() throws NoSuchFieldException {
+        Maker<Number> maker = NumberMaker.from(field("wideMinByte"), ValueGenerator.seeded(1L));
+
+        assertThat(maker.value(), Matchers.<Number>equalTo(Byte.MIN_VALUE));
+        assertThat(maker.value(), Matchers.<Number>equalTo((byte) (Byte.MIN_VALUE + 1)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void minAboveDeclaredTypeIsRejected() throws NoSuchFieldException {
+        NumberMaker.from(field("tooBigMinByte"), ValueGenerator.seeded(1L));
+    }
+
+    @Test
+    public void randomGeneratorsHaveTheirOwnSequences() throws NoSuchFieldException {
+        Maker<Number> maker = NumberMaker.from(field("longValue"), ValueGenerator.random());
+        Maker<Number> otherMaker = NumberMaker.from(field("longValue"), ValueGenerator.random());
+
+        assertThat(maker.value(), Matchers.<Number>equalTo(1L));
+        assertThat(otherMaker.value(), Matchers.<Number>equalTo(1L));
+    }
+
+    private static class Numbers {
+        private Long longValue;
+        private Short shortValue;
+        private BigDecimal decimalValue;
+        @Min(10)
+        @Max(12)
+        private Integer rangedValue;
+        @Min(-1000)
+        private Byte wideMinByte;
+        @Min(1000)
+        private Byte tooBigMinByte;
+    }
+}
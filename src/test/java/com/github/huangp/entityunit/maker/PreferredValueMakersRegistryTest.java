@@ -0,0 +1,54 @@
+package com.github.huangp.entityunit.maker;
+
+import com.github.huangp.entities.Person;
+import com.github.huangp.entityunit.util.Settable;
+import com.github.huangp.entityunit.util.SettableProperty;
+import com.google.common.base.Optional;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.beans.PropertyDescriptor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class PreferredValueMakersRegistryTest {
+    private PreferredValueMakersRegistry registry;
+    private Settable personName;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new PreferredValueMakersRegistry();
+        personName = SettableProperty.from(Person.class, new PropertyDescriptor("name", Person.class));
+    }
+
+    @Test
+    public void exactNameTakesPrecedenceOverCustomMatcher() {
+        Maker<String> exact = FixedValueMaker.fix("exact");
+        registry.add(Matchers.containsString("name"), FixedValueMaker.fix("custom"));
+        registry.addFieldOrPropertyMaker(Person.class, "name", exact);
+
+        Optional<Maker<?>> result = registry.getMaker(personName);
+
+        assertThat(result.get(), Matchers.<Maker<?>>sameInstance(exact));
+    }
+
+    @Test
+    public void resolvedResultIsRefreshedAfterRegistryChanges() {
+        assertThat(registry.getMaker(personName).isPresent(), Matchers.is(false));
+
+        Maker<String> custom = FixedValueMaker.fix("custom");
+        registry.add(Matchers.endsWith("- name"), custom);
+        assertThat(registry.getMaker(personName).get(), Matchers.<Maker<?>>sameInstance(custom));
+
+        Maker<String> merged = FixedValueMaker.fix("merged");
+        registry.merge(new PreferredValueMakersRegistry().addFieldOrPropertyMaker(Person.class, "name", merged));
+        assertThat(registry.getMaker(personName).get(), Matchers.<Maker<?>>sameInstance(merged));
+
+        registry.clear();
+        assertThat(registry.getMaker(personName).isPresent(), Matchers.is(false));
+    }
+}
@@ -5,6 +5,7 @@ import com.github.huangp.entityunit.util.Settable;
 import com.github.huangp.entityunit.util.SettableField;
 import com.github.huangp.entityunit.util.SettableProperty;
 import com.google.common.base.Optional;
+import com.google.common.collect.Sets;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.zanata.model.HAccount;
@@ -12,6 +13,7 @@ import org.zanata.model.HPerson;
 
 import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -22,7 +24,7 @@ public class StringMakerTest {
 
     @Test
     public void canMakeRandomString() throws IntrospectionException {
-        StringMaker maker = StringMaker.from(SettableProperty.from(Person.class, new PropertyDescriptor("name", Person.class)));
+        StringMaker maker = StringMaker.from(SettableProperty.from(Person.class, new PropertyDescriptor("name", Person.class)), ValueGenerator.random());
 
         String value = maker.value();
 
@@ -33,7 +35,7 @@ public class StringMakerTest {
     @Test
     public void canMakeStringWithEmailConstraint() throws NoSuchMethodException, IntrospectionException {
 
-        StringMaker maker = StringMaker.from(SettableProperty.from(HPerson.class, new PropertyDescriptor("email", HPerson.class)));
+        StringMaker maker = StringMaker.from(SettableProperty.from(HPerson.class, new PropertyDescriptor("email", HPerson.class)), ValueGenerator.random());
 
         String value = maker.value();
 
@@ -42,10 +44,25 @@ public class StringMakerTest {
 
     @Test
     public void canMakeStringWithSizeLimit() throws NoSuchMethodException, IntrospectionException {
-        StringMaker maker = StringMaker.from(SettableProperty.from(HAccount.class, new PropertyDescriptor("apiKey", HAccount.class)));
+        StringMaker maker = StringMaker.from(SettableProperty.from(HAccount.class, new PropertyDescriptor("apiKey", HAccount.class)), ValueGenerator.random());
 
         String value = maker.value();
 
         assertThat(value.length(), Matchers.equalTo(32));
     }
+
+    @Test
+    public void madeStringsAreRandomLetters() throws IntrospectionException {
+        StringMaker maker = StringMaker.from(SettableProperty.from(Person.class, new PropertyDescriptor("name", Person.class)), ValueGenerator.random());
+
+        Set<String> values = Sets.newHashSet();
+        // more than one pool of characters
+        for (int i = 0; i < 1000; i++) {
+            String value = maker.value();
+            assertThat(value.matches("[a-zA-Z]{10}"), Matchers.is(true));
+            values.add(value);
+        }
+
+        assertThat(values, Matchers.hasSize(1000));
+    }
 }
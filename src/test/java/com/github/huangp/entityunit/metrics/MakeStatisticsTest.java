@@ -0,0 +1,59 @@
+package com.github.huangp.entityunit.metrics;
+
+import com.github.huangp.entities.Category;
+import com.github.huangp.entities.LineItem;
+import com.github.huangp.entityunit.entity.EntityMaker;
+import com.github.huangp.entityunit.entity.EntityMakerBuilder;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+
+import javax.persistence.EntityManager;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class MakeStatisticsTest {
+
+    @Test
+    public void histogramPercentileIsWithinBucket() {
+        Histogram histogram = new Histogram();
+        for (long nanos = 1; nanos <= 100; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertThat(histogram.getCount(), Matchers.equalTo(100L));
+        assertThat(histogram.getMaxNanos(), Matchers.equalTo(100L));
+        assertThat(histogram.getMeanNanos(), Matchers.closeTo(50.5, 0.001));
+        // 50th value is 50, which is in bucket [32, 63]
+        assertThat(histogram.percentileNanos(50), Matchers.equalTo(63L));
+        assertThat(histogram.percentileNanos(100), Matchers.equalTo(100L));
+    }
+
+    @Test
+    public void canRecordPhasesAndCounts() {
+        MakeStatistics statistics = new MakeStatistics();
+        EntityMaker maker = EntityMakerBuilder.builder().listener(statistics).build();
+        EntityManager entityManager = Mockito.mock(EntityManager.class, Answers.RETURNS_DEEP_STUBS.get());
+
+        maker.makeAndPersist(entityManager, LineItem.class);
+        maker.makeAndPersist(entityManager, LineItem.class);
+
+        assertThat(statistics.madeCount(LineItem.class), Matchers.equalTo(2L));
+        assertThat(statistics.madeCount(Category.class), Matchers.equalTo(1L));
+        assertThat(statistics.reusedCount(Category.class), Matchers.equalTo(1L));
+        assertThat(statistics.histogram(MakeListener.Phase.SCAN, LineItem.class).getCount(), Matchers.equalTo(2L));
+        assertThat(statistics.histogram(MakeListener.Phase.MAKE, LineItem.class).getCount(), Matchers.equalTo(2L));
+        assertThat(statistics.histogram(MakeListener.Phase.PERSIST).getCount(), Matchers.equalTo(2L));
+        assertThat(statistics.histogram(MakeListener.Phase.CONSTRUCT, Category.class).getCount(),
+                Matchers.equalTo(1L));
+        assertThat(statistics.getEntitiesMade(), Matchers.hasEntry(LineItem.class.getName(), 2L));
+
+        statistics.reset();
+        assertThat(statistics.histogram(MakeListener.Phase.MAKE).getCount(), Matchers.equalTo(0L));
+        assertThat(statistics.madeCount(LineItem.class), Matchers.equalTo(0L));
+    }
+}
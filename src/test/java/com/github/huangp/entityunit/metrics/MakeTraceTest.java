@@ -0,0 +1,49 @@
+package com.github.huangp.entityunit.metrics;
+
+import com.github.huangp.entities.Person;
+import com.github.huangp.entityunit.entity.EntityMakerBuilder;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+
+import javax.persistence.EntityManager;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Patrick Huang
+ */
+public class MakeTraceTest {
+
+    @Test
+    public void keepsMostRecentEntries() {
+        MakeTrace trace = new MakeTrace(2);
+        trace.entityMade(String.class);
+        trace.entityReused(Integer.class);
+        trace.entityMade(Long.class);
+
+        assertThat(trace.recorded(), Matchers.equalTo(3L));
+        assertThat(trace.lines(), Matchers.contains("reused Integer", "made Long"));
+
+        trace.clear();
+        assertThat(trace.lines(), Matchers.emptyIterable());
+    }
+
+    @Test
+    public void recordsMadeValues() {
+        MakeTrace trace = new MakeTrace(100);
+        MakeStatistics statistics = new MakeStatistics();
+        EntityManager entityManager = Mockito.mock(EntityManager.class, Answers.RETURNS_DEEP_STUBS.get());
+
+        Person person = EntityMakerBuilder.builder()
+                .listener(MakeListeners.chain(trace, statistics))
+                .build()
+                .makeAndPersist(entityManager, Person.class);
+
+        assertThat(trace.lines(), Matchers.hasItem(Matchers.allOf(Matchers.containsString("name"),
+                Matchers.endsWith(person.getName()))));
+        assertThat(trace.lines(), Matchers.hasItem("made Person"));
+        assertThat(statistics.madeCount(Person.class), Matchers.equalTo(1L));
+    }
+}
@@ -8,6 +8,12 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.zanata.model.HLocale;
+import org.zanata.model.HLocaleMember;
+import org.zanata.model.security.HCredentials;
+import org.zanata.model.security.HOpenIdCredentials;
+
+import javax.persistence.Table;
 
 import java.util.List;
 import java.util.Map;
@@ -67,4 +73,19 @@ public class ClassUtilTest {
         T[] typeArray;
 
     }
+
+    @Test
+    public void canGetTableName() {
+        assertThat(ClassUtil.getTableName(HLocale.class), Matchers.equalTo("HLocale"));
+        assertThat(ClassUtil.getTableName(HLocaleMember.class), Matchers.equalTo("HLocale_Member"));
+        assertThat(ClassUtil.getTableName(Qualified.class), Matchers.equalTo("cat.sch.qualified_table"));
+        // SINGLE_TABLE subclass lives in root table
+        assertThat(ClassUtil.getTableName(HOpenIdCredentials.class), Matchers.equalTo("HCredentials"));
+        assertThat(ClassUtil.getTableOwner(HOpenIdCredentials.class), Matchers.<Class<?>>equalTo(HCredentials.class));
+    }
+
+    // not an Entity so the test persistence unit won't pick it up
+    @Table(catalog = "cat", schema = "sch", name = "qualified_table")
+    static class Qualified {
+    }
 }